@@ -0,0 +1,87 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.lwjgl.BufferUtils;
+import settings.SettingsInterface;
+import simulation.objects.Agent;
+import simulation.objects.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the Simulation hot paths, run from the project root so the presets can be found
+ * mvn -P bench package && java -jar target/benchmarks.jar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+    private final Direction[] directions = new Direction[Direction.values().length];
+    private final float[] values = new float[Direction.values().length];
+    private ByteBuffer[] buffers;
+
+    /**
+     * Allocate the buffers of the 2D Map and take a snapshot of the World for them
+     * @param state the benchmarked Simulation
+     */
+    @Setup
+    public void setup(SimulationState state) {
+        state.world.acquireSnapshot();
+        state.world.publishSnapshot();
+        state.world.acquireSnapshot();
+        int size = state.world.getSize();
+        buffers = new ByteBuffer[]{
+                BufferUtils.createByteBuffer(size * size * 4),
+                BufferUtils.createByteBuffer(size * size * 4),
+                BufferUtils.createByteBuffer(size * size * 4)
+        };
+    }
+
+    @Benchmark
+    public void tick(SimulationState state) {
+        state.simulation.tick(1.0 / SettingsInterface.TARGET_UPS);
+    }
+
+    @Benchmark
+    public void agentUpdate(SimulationState state) {
+        state.nextAgent().update(1.0 / SettingsInterface.TARGET_UPS);
+    }
+
+    @Benchmark
+    public void worldUpdate(SimulationState state) {
+        state.world.update();
+    }
+
+    @Benchmark
+    public void putAndRemoveMarker(SimulationState state) {
+        Agent agent = state.nextAgent();
+        state.world.putMarker(agent);
+        state.world.removeMarker(agent);
+    }
+
+    @Benchmark
+    public int getMarkers(SimulationState state) {
+        return state.world.getMarkers(state.nextAgent(), directions, values);
+    }
+
+    @Benchmark
+    public void fillBuffers(SimulationState state, Blackhole blackhole) {
+        state.world.fillBuffers(buffers[0], buffers[1], buffers[2]);
+        blackhole.consume(buffers);
+    }
+}
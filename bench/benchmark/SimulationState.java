@@ -0,0 +1,89 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import settings.SettingsContainer;
+import settings.SettingsInterface;
+import simulation.HeadlessRunner;
+import simulation.Simulation;
+import simulation.objects.Agent;
+import simulation.objects.World;
+
+import java.util.List;
+
+/**
+ * This class holds a headless Simulation generated from one of the shipped presets
+ * every parameter left to -1 keeps the value of the preset
+ */
+@State(Scope.Benchmark)
+public class SimulationState {
+
+    @Param({"Part_1-1.ini", "Part_1-2.ini", "Part_2.ini", "config.ini"})
+    public String preset;
+
+    @Param({"-1"})
+    public int worldSize;
+
+    @Param({"-1"})
+    public int agentCount;
+
+    //Number of Objects of type A and of type B
+    @Param({"-1"})
+    public int objectCount;
+
+    //Number of Objects of type C
+    @Param({"-1"})
+    public int cCount;
+
+    @Param({"-1"})
+    public int markerRadius;
+
+    //Number of updates run before measuring, so objects and markers are spread like in a running Simulation
+    @Param({"500"})
+    public int warmupTicks;
+
+    public Simulation simulation;
+    public World world;
+    public List<Agent> agents;
+    private int next;
+
+    /**
+     * Load the preset, apply the overridden parameters and generate the Simulation
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        new SettingsContainer(preset);
+        if (worldSize >= 0)
+            SettingsInterface.WORLD_SIZE = worldSize;
+        if (agentCount >= 0)
+            SettingsInterface.AGENT_COUNT = agentCount;
+        if (objectCount >= 0) {
+            SettingsInterface.A_COUNT = objectCount;
+            SettingsInterface.B_COUNT = objectCount;
+        }
+        if (cCount >= 0)
+            SettingsInterface.C_COUNT = cCount;
+        if (markerRadius >= 0)
+            SettingsInterface.MARKER_RADIUS = markerRadius;
+
+        HeadlessRunner runner = new HeadlessRunner();
+        runner.run(warmupTicks);
+        simulation = runner.getSimulation();
+        world = simulation.getWorld();
+        agents = simulation.getAgents();
+        next = 0;
+    }
+
+    /**
+     * Return the Agents one after the other, cycling through all of them
+     * @return the next Agent
+     */
+    public Agent nextAgent() {
+        Agent agent = agents.get(next);
+        next = (next + 1) % agents.size();
+        return agent;
+    }
+}
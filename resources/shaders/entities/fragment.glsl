@@ -5,6 +5,7 @@ const int MAX_POINT_LIGHTS = 5;
 in vec2 outTexCoord;
 in vec3 mvVertexNormal;
 in vec3 mvVertexPos;
+in vec4 outColour;
 
 out vec4 fragColor;
 
@@ -38,8 +39,16 @@ uniform sampler2D texture_sampler;
 uniform sampler2D normal_sampler;
 uniform vec3 ambientLight;
 uniform float specularPower;
-uniform Material material;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
+
+layout (std140) uniform MaterialBlock
+{
+    Material material;
+};
+
+layout (std140) uniform PointLightsBlock
+{
+    PointLight pointLights[MAX_POINT_LIGHTS];
+};
 
 vec4 ambientC;
 vec4 diffuseC;
@@ -59,6 +68,9 @@ void setupColours(Material material, vec2 textCoord)
         diffuseC = material.diffuse;
         speculrC = material.specular;
     }
+    ambientC *= outColour;
+    diffuseC *= outColour;
+    speculrC *= outColour;
 }
 
 vec4 calcLightColour(vec3 light_colour, float light_intensity, vec3 position, vec3 to_light_dir, vec3 normal)
@@ -39,9 +39,17 @@ uniform sampler2D normal_sampler;
 uniform sampler2D help_marker_sampler;
 uniform vec3 ambientLight;
 uniform float specularPower;
-uniform Material material;
 uniform float scale;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
+
+layout (std140) uniform MaterialBlock
+{
+    Material material;
+};
+
+layout (std140) uniform PointLightsBlock
+{
+    PointLight pointLights[MAX_POINT_LIGHTS];
+};
 
 vec4 ambientC;
 vec4 diffuseC;
@@ -51,13 +59,13 @@ void setupColours(Material material, vec2 textCoord, vec2 scaledTextCoord)
 {
     if (material.hasTexture == 1)
     {
-        ambientC = texture(texture_sampler, scaledTextCoord) + texture(help_marker_sampler, textCoord);
+        ambientC = texture(texture_sampler, scaledTextCoord) + vec4(texture(help_marker_sampler, textCoord).r, 0, 0, 0);
         diffuseC = ambientC;
         speculrC = ambientC;
     }
     else
     {
-        ambientC = material.ambient + texture(help_marker_sampler, textCoord);
+        ambientC = material.ambient + vec4(texture(help_marker_sampler, textCoord).r, 0, 0, 0);
         diffuseC = material.diffuse;
         speculrC = material.specular;
     }
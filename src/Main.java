@@ -1,12 +1,28 @@
 import engine.rendering.Engine;
 import imgui.ImGuiLayer;
 import settings.SettingsContainer;
+import settings.SimulationConfig;
+import simulation.HeadlessRunner;
 import simulation.Simulation;
+import simulation.SweepRunner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
  
     public static void main(String[] args) {
         try {
+            if (args.length > 0 && args[0].equals("--headless")) {
+                runHeadless(args);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--sweep")) {
+                runSweep(args);
+                return;
+            }
             Simulation logic = new Simulation();
             SettingsContainer settingsContainer = new SettingsContainer("config.ini");
             ImGuiLayer imgui = new ImGuiLayer(logic, settingsContainer);
@@ -17,4 +33,87 @@ public class Main {
             System.exit(-1);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Run the Simulation without a Window and print the achieved update rate
+     * usage : --headless [config file] [number of updates] [--load snapshot] [--save snapshot] [--record name] [--replay name [--seek update]]
+     * a recording is made of a snapshot (name.snap) and a log of the changes (name.log),
+     * a replay can jump to an update of the recording before running the updates
+     * @param args the program arguments
+     * @throws IOException thrown when a snapshot can't be read or written
+     */
+    private static void runHeadless(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        Path load = null, save = null;
+        String record = null, replay = null;
+        int seek = -1;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--load" -> load = Path.of(args[++i]);
+                case "--save" -> save = Path.of(args[++i]);
+                case "--record" -> record = args[++i];
+                case "--replay" -> replay = args[++i];
+                case "--seek" -> seek = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        String config = positional.size() > 0 ? positional.get(0) : "config.ini";
+        int ticks = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 10000;
+        new SettingsContainer(config);
+        HeadlessRunner runner = new HeadlessRunner();
+        if (load != null) {
+            long start = System.nanoTime();
+            runner.getSimulation().load(load);
+            System.out.println("Loaded " + load + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        if (replay != null)
+            runner.getSimulation().replay(Path.of(replay + ".snap"), Path.of(replay + ".log"));
+        if (seek >= 0) {
+            if (replay == null)
+                throw new IllegalArgumentException("--seek requires --replay");
+            long start = System.nanoTime();
+            int reached = runner.getSimulation().seekReplay(seek);
+            System.out.println("Reached update " + reached + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        if (record != null)
+            runner.getSimulation().startRecording(Path.of(record + ".snap"), Path.of(record + ".log"));
+        double ups = runner.run(ticks);
+        runner.getSimulation().stopRecording();
+        System.out.println(ticks + " updates, " + ((int)(ups * 100) / 100.0) + " updates/sec, seed " + runner.getSimulation().getSeed());
+        if (save != null) {
+            long start = System.nanoTime();
+            runner.getSimulation().save(save);
+            System.out.println("Saved " + save + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Run every combination of a parameter sweep headlessly, on every core, and write the results of each run to a CSV file
+     * usage : --sweep <sweep file> [config file] [number of updates] [--out results file] [--threads count]
+     * the parameters missing from the sweep file are taken from the config file
+     * @param args the program arguments
+     * @throws IOException thrown when the sweep file can't be read or the results file can't be written
+     */
+    private static void runSweep(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        Path out = Path.of("sweep.csv");
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> out = Path.of(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        if (positional.isEmpty())
+            throw new IllegalArgumentException("Usage : --sweep <sweep file> [config file] [number of updates] [--out results file] [--threads count]");
+        String config = positional.size() > 1 ? positional.get(1) : "config.ini";
+        int ticks = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 10000;
+        new SettingsContainer(config);
+        SweepRunner sweep = new SweepRunner(Path.of(positional.get(0)), SimulationConfig.fromSettings());
+        System.out.println(sweep.getRunCount() + " runs of " + ticks + " updates on " + threads + " threads");
+        long start = System.nanoTime();
+        int failed = sweep.run(ticks, out, threads);
+        System.out.println("Sweep done in " + (System.nanoTime() - start) / 1_000_000 + " ms, " + failed + " failed runs, results in " + out);
+    }
+}
@@ -2,6 +2,7 @@ package engine.objects;
 
 import engine.rendering.Mesh;
 import org.joml.Vector3f;
+import org.joml.Vector4f;
 
 /**
  * This class represent an Item that can be rendered by the Engine
@@ -12,6 +13,8 @@ public class RenderableItem {
     private final Vector3f position;
     private float scale;
     private final Vector3f rotation;
+    private final Vector4f colour;
+    private boolean dirty;
 
     /**
      * Create an empty Item, without mesh
@@ -20,6 +23,8 @@ public class RenderableItem {
         position = new Vector3f();
         scale = 1;
         rotation = new Vector3f();
+        colour = new Vector4f(1, 1, 1, 1);
+        dirty = true;
     }
 
     /**
@@ -46,6 +51,9 @@ public class RenderableItem {
      * @param z z coords
      */
     public void setPosition(float x, float y, float z) {
+        if (position.x == x && position.y == y && position.z == z)
+            return;
+        dirty = true;
         this.position.x = x;
         this.position.y = y;
         this.position.z = z;
@@ -64,6 +72,7 @@ public class RenderableItem {
      * @param scale the new scaling factor
      */
     public void setScale(float scale) {
+        dirty |= this.scale != scale;
         this.scale = scale;
     }
 
@@ -82,11 +91,49 @@ public class RenderableItem {
      * @param z angle around Z axis in degrees
      */
     public void setRotation(float x, float y, float z) {
+        if (rotation.x == x && rotation.y == y && rotation.z == z)
+            return;
+        dirty = true;
         this.rotation.x = x;
         this.rotation.y = y;
         this.rotation.z = z;
     }
 
+    /**
+     * Return the Item's colour, multiplied with the colours of its Material when rendered
+     * @return the Item's colour
+     */
+    public Vector4f getColour() {
+        return colour;
+    }
+
+    /**
+     * Set the Item's colour
+     * @param r red component
+     * @param g green component
+     * @param b blue component
+     * @param a alpha component
+     */
+    public void setColour(float r, float g, float b, float a) {
+        dirty |= colour.x != r || colour.y != g || colour.z != b || colour.w != a;
+        this.colour.set(r, g, b, a);
+    }
+
+    /**
+     * Return whether the Item was modified since it was last rendered
+     * @return true if the position, rotation, scale or colour changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Mark the Item as up to date with its rendered state
+     */
+    public void setClean() {
+        dirty = false;
+    }
+
     /**
      * Return the Item's Mesh
      * @return the Item's Mesh
@@ -1,5 +1,7 @@
 package engine.rendering;
 
+import engine.utils.FramePacer;
+import engine.utils.Metrics;
 import engine.utils.MouseInput;
 import engine.utils.Timer;
 import settings.SettingsInterface;
@@ -15,6 +17,7 @@ public class Engine implements Runnable {
     private final Window window;
 
     private final Timer timer;
+    private final FramePacer pacer;
     private final ILogic gameLogic;
     private final MouseInput mouseInput;
 
@@ -31,6 +34,7 @@ public class Engine implements Runnable {
         mouseInput = new MouseInput();
         this.gameLogic = gameLogic;
         timer = new Timer();
+        pacer = new FramePacer();
         imGuiLayer.linkEngine(this);
     }
 
@@ -60,6 +64,10 @@ public class Engine implements Runnable {
         timer.init();
         mouseInput.init(window);
         gameLogic.init(window);
+        //The frame timings are sampled by the logic thread, they are only ever written here
+        Metrics.gauge("frame_time_ms", () -> pacer.getFrameTime() * 1000);
+        Metrics.gauge("frame_jitter_ms", () -> pacer.getJitter() * 1000);
+        gameLogic.start();
     }
 
     /**
@@ -74,36 +82,22 @@ public class Engine implements Runnable {
      */
     protected void loop() {
         double elapsedTime;
-        double accumulator = 0f;
-        double interval;
-        int nbUpdate;
-        //While the engine is running
+        //While the engine is running, the logic is updated on its own thread
         while (!window.windowShouldClose()) {
-            //Calculate an update duration and get the elapsed time since last loop
-            interval = 1f / SettingsInterface.TARGET_UPS;
+            //Get the elapsed time since last loop
             elapsedTime = timer.getElapsedTime();
-            accumulator += elapsedTime;
+            pacer.recordFrame(elapsedTime);
 
             //Prepare ImGui for rendering
             window.prepareImGui();
 
             //Handle user inputs
             input();
-            nbUpdate = 0;
 
-            //Update the logic as many times as needed to respect the number of updates per second
-            while (accumulator >= interval) {
-                update(interval);
-                accumulator -= interval;
-                nbUpdate++;
-            }
-
-            //Set the current update percentage used for animation purposes (only relevant if TARGET_UPS < TARGET_FPS)
-            gameLogic.setPercent(Math.min(accumulator / interval, 1.0));
             render();
 
             //Render ImGUi and draw the frame
-            window.updateImGui(elapsedTime, nbUpdate);
+            window.updateImGui(elapsedTime, gameLogic.getUpdateRate(), pacer.getJitter());
             window.update();
 
             //If VSync is disabled, wait to sync framerate with TARGET_FPS
@@ -124,13 +118,8 @@ public class Engine implements Runnable {
      * Sync the framerate with TARGET_FPS
      */
     private void sync() {
-        float loopSlot = 1f / SettingsInterface.TARGET_FPS;
-        double endTime = timer.getLastLoopTime() + loopSlot;
-        while (timer.getTime() < endTime) {
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException ignored) {}
-        }
+        double loopSlot = 1.0 / SettingsInterface.TARGET_FPS;
+        pacer.waitUntil((long) ((timer.getLastLoopTime() + loopSlot) * 1_000_000_000L));
     }
 
     /**
@@ -141,14 +130,6 @@ public class Engine implements Runnable {
         gameLogic.input(window, mouseInput);
     }
 
-    /**
-     * Update the ILogic, called once every update
-     * @param interval elapsed time in seconds
-     */
-    protected void update(double interval) {
-        gameLogic.update(window, interval);
-    }
-
     /**
      * Render the frame, called once every frame
      */
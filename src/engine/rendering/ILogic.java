@@ -22,11 +22,15 @@ public interface ILogic {
     void input(Window window, MouseInput mouseInput);
 
     /**
-     * Update the simulation, called once every (1/TARGET_UPS sec, see settings package)
-     * @param window the Window where the simulation is rendered
-     * @param elapsedTime time elapsed since last update in seconds
+     * Start updating the Logic on its own thread, once every (1/TARGET_UPS sec, see settings package)
      */
-    void update(Window window, double elapsedTime);
+    void start();
+
+    /**
+     * Return the number of updates per second achieved by the Logic
+     * @return the number of updates per second
+     */
+    int getUpdateRate();
 
     /**
      * Update the Camera's position and rotation
@@ -60,10 +64,4 @@ public interface ILogic {
      * Reset the Logic
      */
     void reset();
-
-    /**
-     * Set the current animation percentage
-     * @param percent the current animation percentage
-     */
-    void setPercent(double percent);
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package engine.rendering;
 
 import engine.objects.RenderableItem;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
 import org.lwjgl.system.MemoryUtil;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -8,7 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.lwjgl.opengl.GL11.GL_FLOAT;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
@@ -18,10 +20,12 @@ import static org.lwjgl.opengl.GL11.glBindTexture;
 import static org.lwjgl.opengl.GL11.glDrawElements;
 import static org.lwjgl.opengl.GL13.*;
 import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
 import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
 import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
 import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
 import static org.lwjgl.opengl.GL15.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15.glGenBuffers;
 import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
@@ -30,13 +34,24 @@ import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
 
 /**
  * This class represent a 3D Mesh that can be rendered by the Engine
  */
 public class Mesh {
 
+    //Per instance data : model matrix (16 floats) and colour (4 floats)
+    private static final int INSTANCE_FLOATS = 20;
+    private static final int INSTANCE_MATRIX_LOCATION = 3;
+    private static final int INSTANCE_COLOUR_LOCATION = 7;
+
     private final int vaoId;
+    private int instanceVboId = -1;
+    private FloatBuffer instanceBuffer;
+    private List<RenderableItem> instanceItems;
+    private int instanceCount;
     private final List<Integer> vboIdList;
     private final int vertexCount;
     private Material material;
@@ -201,23 +216,91 @@ public class Mesh {
     }
 
     /**
-     * Render a list of Items that are represented by this Mesh
+     * Render a list of Items that are represented by this Mesh in a single instanced draw call
+     * the model matrix and colour of every Item are kept in the instance VBO of the Mesh,
+     * only the entries of the Items modified since the last frame are rewritten
      * @param gameItems the list of Items to render
-     * @param consumer a Function taking the current Item called before rendering (usually for loading uniforms)
+     * @param modelMatrix a Function returning the model matrix of an Item
      */
-    public void renderList(List<RenderableItem> gameItems, Consumer<RenderableItem> consumer) {
-        initRender();
+    public void renderInstanced(List<RenderableItem> gameItems, Function<RenderableItem, Matrix4f> modelMatrix) {
+        int count = gameItems.size();
+        if (count == 0)
+            return;
+        if (instanceVboId == -1)
+            createInstanceVbo();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
 
-        for (RenderableItem gameItem : gameItems) {
-            // Set up data required by GameItem
-            consumer.accept(gameItem);
-            // Render this game item
-            glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        // If the Items changed, every entry is rewritten to a new buffer, orphaning the previous one
+        boolean full = gameItems != instanceItems || count != instanceCount;
+        if (instanceBuffer == null || instanceBuffer.capacity() < count * INSTANCE_FLOATS) {
+            if (instanceBuffer != null)
+                MemoryUtil.memFree(instanceBuffer);
+            instanceBuffer = MemoryUtil.memAllocFloat(Math.max(count, instanceBuffer == null ? 0 : instanceBuffer.capacity() / INSTANCE_FLOATS * 2) * INSTANCE_FLOATS);
+            full = true;
         }
+        if (full)
+            glBufferData(GL_ARRAY_BUFFER, (long) instanceBuffer.capacity() * Float.BYTES, GL_DYNAMIC_DRAW);
+        instanceItems = gameItems;
+        instanceCount = count;
 
+        // Pack the modified instances, and upload every run of consecutive modified entries at once
+        int runStart = -1;
+        for (int i = 0; i < count; i++) {
+            RenderableItem gameItem = gameItems.get(i);
+            if (full || gameItem.isDirty()) {
+                int offset = i * INSTANCE_FLOATS;
+                modelMatrix.apply(gameItem).get(offset, instanceBuffer);
+                Vector4f colour = gameItem.getColour();
+                instanceBuffer.put(offset + 16, colour.x).put(offset + 17, colour.y).put(offset + 18, colour.z).put(offset + 19, colour.w);
+                gameItem.setClean();
+                if (runStart == -1)
+                    runStart = i;
+            } else if (runStart != -1) {
+                uploadInstances(runStart, i);
+                runStart = -1;
+            }
+        }
+        if (runStart != -1)
+            uploadInstances(runStart, count);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        initRender();
+        glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, count);
         endRender();
     }
 
+    /**
+     * Upload a range of instances to the bound instance VBO
+     * @param from the first instance to upload
+     * @param to the instance after the last one to upload
+     */
+    private void uploadInstances(int from, int to) {
+        instanceBuffer.limit(to * INSTANCE_FLOATS).position(from * INSTANCE_FLOATS);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) from * INSTANCE_FLOATS * Float.BYTES, instanceBuffer);
+        instanceBuffer.clear();
+    }
+
+    /**
+     * Create the instance VBO of the Mesh and bind it to the instanced attributes of the VAO
+     * the model matrix takes 4 attribute locations (one per column) followed by the colour
+     */
+    private void createInstanceVbo() {
+        glBindVertexArray(vaoId);
+        instanceVboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+        int stride = INSTANCE_FLOATS * Float.BYTES;
+        for (int i = 0; i < 4; i++) {
+            glEnableVertexAttribArray(INSTANCE_MATRIX_LOCATION + i);
+            glVertexAttribPointer(INSTANCE_MATRIX_LOCATION + i, 4, GL_FLOAT, false, stride, (long) i * 4 * Float.BYTES);
+            glVertexAttribDivisor(INSTANCE_MATRIX_LOCATION + i, 1);
+        }
+        glEnableVertexAttribArray(INSTANCE_COLOUR_LOCATION);
+        glVertexAttribPointer(INSTANCE_COLOUR_LOCATION, 4, GL_FLOAT, false, stride, 16L * Float.BYTES);
+        glVertexAttribDivisor(INSTANCE_COLOUR_LOCATION, 1);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
     /**
      * Clean up the Mesh and its Textures/VAO/VBOs
      */
@@ -229,6 +312,10 @@ public class Mesh {
         for (int vboId : vboIdList) {
             glDeleteBuffers(vboId);
         }
+        if (instanceVboId != -1)
+            glDeleteBuffers(instanceVboId);
+        if (instanceBuffer != null)
+            MemoryUtil.memFree(instanceBuffer);
 
         // Delete the texture
         Texture texture = material.getTexture();
@@ -1,6 +1,7 @@
 package engine.rendering;
 
 import engine.objects.Scene;
+import engine.utils.Profiler;
 import engine.utils.Transformation;
 import engine.utils.Utils;
 import engine.objects.*;
@@ -22,12 +23,43 @@ public class Renderer {
     private static final float Z_NEAR = 0.01f;
     private static final float Z_FAR = 1000.f;
 
+    private static final Profiler.Section RENDER_SCENE = Profiler.section("Frame", "renderScene");
+    private static final Profiler.Section RENDER_WORLD = Profiler.section("Frame", "renderWorld");
+    private static final Profiler.Section RENDER_SKYBOX = Profiler.section("Frame", "renderSkyBox");
+
     private final Transformation transformation;
 
     private ShaderProgram shaderProgram;
     private ShaderProgram skyBoxShaderProgram;
     private ShaderProgram worldShaderProgram;
 
+    private Uniform projectionMatrix;
+    private Uniform viewMatrix;
+    private Uniform textureSampler;
+    private Uniform normalSampler;
+    private Uniform specularPowerUniform;
+    private Uniform ambientLight;
+
+    private Uniform worldProjectionMatrix;
+    private Uniform worldModelViewMatrix;
+    private Uniform worldTextureSampler;
+    private Uniform worldNormalSampler;
+    private Uniform worldHelpMarkerSampler;
+    private Uniform worldSpecularPower;
+    private Uniform worldScale;
+    private Uniform worldAmbientLight;
+
+    private Uniform skyBoxProjectionMatrix;
+    private Uniform skyBoxModelViewMatrix;
+    private Uniform skyBoxTextureSampler;
+    private Uniform skyBoxAmbientLight;
+
+    //Material and PointLight structs are shared by the entity and world Shaders through Uniform Buffers
+    private UniformBuffer materialBuffer;
+    private UniformBuffer pointLightsBuffer;
+    private final Vector4f lightPosition;
+    private final Vector3f viewLightPosition;
+
     private final float specularPower;
 
     /**
@@ -36,53 +68,58 @@ public class Renderer {
     public Renderer() {
         transformation = new Transformation();
         specularPower = 10f;
+        lightPosition = new Vector4f();
+        viewLightPosition = new Vector3f();
     }
 
     /**
-     * Initialize the Renderer, create Shaders and Uniforms
+     * Initialize the Renderer, create Shaders, Uniforms and Uniform Buffers
      * @throws Exception thrown when unable to link shaders or to load resources
      */
     public void init() throws Exception {
+        materialBuffer = new UniformBuffer(UniformBuffer.MATERIAL_SIZE, 0);
+        pointLightsBuffer = new UniformBuffer(UniformBuffer.POINT_LIGHT_SIZE * MAX_POINT_LIGHTS, 1);
+
         // Create shader
         shaderProgram = new ShaderProgram();
         shaderProgram.createVertexShader(Utils.loadResource("/shaders/entities/vertex.glsl"));
         shaderProgram.createFragmentShader(Utils.loadResource("/shaders/entities/fragment.glsl"));
         shaderProgram.link();
 
-        shaderProgram.createUniform("projectionMatrix");
-        shaderProgram.createUniform("modelViewMatrix");
-        shaderProgram.createUniform("texture_sampler");
-        shaderProgram.createUniform("normal_sampler");
-        shaderProgram.createMaterialUniform("material");
-        shaderProgram.createUniform("specularPower");
-        shaderProgram.createUniform("ambientLight");
-        shaderProgram.createPointLightListUniform("pointLights", MAX_POINT_LIGHTS);
+        projectionMatrix = shaderProgram.createUniform("projectionMatrix");
+        viewMatrix = shaderProgram.createUniform("viewMatrix");
+        textureSampler = shaderProgram.createUniform("texture_sampler");
+        normalSampler = shaderProgram.createUniform("normal_sampler");
+        specularPowerUniform = shaderProgram.createUniform("specularPower");
+        ambientLight = shaderProgram.createUniform("ambientLight");
+        shaderProgram.bindUniformBlock("MaterialBlock", materialBuffer);
+        shaderProgram.bindUniformBlock("PointLightsBlock", pointLightsBuffer);
 
         worldShaderProgram = new ShaderProgram();
         worldShaderProgram.createVertexShader(Utils.loadResource("/shaders/world/vertex.glsl"));
         worldShaderProgram.createFragmentShader(Utils.loadResource("/shaders/world/fragment.glsl"));
         worldShaderProgram.link();
 
-        worldShaderProgram.createUniform("projectionMatrix");
-        worldShaderProgram.createUniform("modelViewMatrix");
-        worldShaderProgram.createUniform("texture_sampler");
-        worldShaderProgram.createUniform("normal_sampler");
-        worldShaderProgram.createUniform("help_marker_sampler");
-        worldShaderProgram.createMaterialUniform("material");
-        worldShaderProgram.createUniform("specularPower");
-        worldShaderProgram.createUniform("scale");
-        worldShaderProgram.createUniform("ambientLight");
-        worldShaderProgram.createPointLightListUniform("pointLights", MAX_POINT_LIGHTS);
+        worldProjectionMatrix = worldShaderProgram.createUniform("projectionMatrix");
+        worldModelViewMatrix = worldShaderProgram.createUniform("modelViewMatrix");
+        worldTextureSampler = worldShaderProgram.createUniform("texture_sampler");
+        worldNormalSampler = worldShaderProgram.createUniform("normal_sampler");
+        worldHelpMarkerSampler = worldShaderProgram.createUniform("help_marker_sampler");
+        worldSpecularPower = worldShaderProgram.createUniform("specularPower");
+        worldScale = worldShaderProgram.createUniform("scale");
+        worldAmbientLight = worldShaderProgram.createUniform("ambientLight");
+        worldShaderProgram.bindUniformBlock("MaterialBlock", materialBuffer);
+        worldShaderProgram.bindUniformBlock("PointLightsBlock", pointLightsBuffer);
 
         skyBoxShaderProgram = new ShaderProgram();
         skyBoxShaderProgram.createVertexShader(Utils.loadResource("/shaders/skybox/vertex.glsl"));
         skyBoxShaderProgram.createFragmentShader(Utils.loadResource("/shaders/skybox/fragment.glsl"));
         skyBoxShaderProgram.link();
 
-        skyBoxShaderProgram.createUniform("projectionMatrix");
-        skyBoxShaderProgram.createUniform("modelViewMatrix");
-        skyBoxShaderProgram.createUniform("texture_sampler");
-        skyBoxShaderProgram.createUniform("ambientLight");
+        skyBoxProjectionMatrix = skyBoxShaderProgram.createUniform("projectionMatrix");
+        skyBoxModelViewMatrix = skyBoxShaderProgram.createUniform("modelViewMatrix");
+        skyBoxTextureSampler = skyBoxShaderProgram.createUniform("texture_sampler");
+        skyBoxAmbientLight = skyBoxShaderProgram.createUniform("ambientLight");
     }
 
     /**
@@ -107,10 +144,17 @@ public class Renderer {
         }
         transformation.updateProjectionMatrix(SettingsInterface.FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
         transformation.updateViewMatrix(camera);
+        loadLights(transformation.getViewMatrix(), scene.getSceneLight());
 
+        long start = RENDER_SCENE.start();
         renderScene(scene);
+        RENDER_SCENE.stop(start);
+        start = RENDER_WORLD.start();
         renderWorld(scene);
+        RENDER_WORLD.stop(start);
+        start = RENDER_SKYBOX.start();
         renderSkyBox(window, camera, scene);
+        RENDER_SKYBOX.stop(start);
     }
 
     /**
@@ -120,52 +164,52 @@ public class Renderer {
     private void renderWorld(Scene scene) {
         worldShaderProgram.bind();
 
-        Matrix4f projectionMatrix = transformation.getProjectionMatrix();
-
         Matrix4f viewMatrix = transformation.getViewMatrix();
         Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(scene.getWorld(), viewMatrix);
 
-        worldShaderProgram.setUniform("projectionMatrix", projectionMatrix);
-        worldShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
+        worldProjectionMatrix.set(transformation.getProjectionMatrix());
+        worldModelViewMatrix.set(modelViewMatrix);
 
-        SceneLight sceneLight = scene.getSceneLight();
-        renderLights(viewMatrix, sceneLight, worldShaderProgram);
+        worldAmbientLight.set(scene.getSceneLight().getAmbientLight());
+        worldSpecularPower.set(specularPower);
 
-        worldShaderProgram.setUniform("texture_sampler", 0);
-        worldShaderProgram.setUniform("normal_sampler", 1);
-        worldShaderProgram.setUniform("help_marker_sampler", 2);
-        worldShaderProgram.setUniform("scale", scene.getWorld().getScale());
+        worldTextureSampler.set(0);
+        worldNormalSampler.set(1);
+        worldHelpMarkerSampler.set(2);
+        worldScale.set(scene.getWorld().getScale());
         // Render each mesh with the associated game Items
-        worldShaderProgram.setUniform("material", scene.getWorld().getMesh().getMaterial());
+        loadMaterial(scene.getWorld().getMesh().getMaterial());
         scene.getWorld().getMesh().render();
 
         worldShaderProgram.unbind();
     }
 
     /**
-     * Render the Lights by loading them to the GPU
+     * Load the Lights to the GPU, with their positions transformed to view coordinates
      * @param viewMatrix the view matrix of the Scene
      * @param sceneLight the Light to render
-     * @param shader the Shader used to render
      */
-    private void renderLights(Matrix4f viewMatrix, SceneLight sceneLight, ShaderProgram shader) {
-        shader.setUniform("ambientLight", sceneLight.getAmbientLight());
-        shader.setUniform("specularPower", specularPower);
-
-        // Process Point Lights
+    private void loadLights(Matrix4f viewMatrix, SceneLight sceneLight) {
+        // Process Point Lights, unused slots are cleared to a null intensity
         PointLight[] pointLightList = sceneLight.getPointLightList();
-        int numLights = pointLightList != null ? pointLightList.length : 0;
+        int numLights = pointLightList != null ? Math.min(pointLightList.length, MAX_POINT_LIGHTS) : 0;
         for (int i = 0; i < numLights; i++) {
-            // Get a copy of the point light object and transform its position to view coordinates
-            PointLight currPointLight = new PointLight(pointLightList[i]);
-            Vector3f lightPos = currPointLight.getPosition();
-            Vector4f aux = new Vector4f(lightPos, 1);
-            aux.mul(viewMatrix);
-            lightPos.x = aux.x;
-            lightPos.y = aux.y;
-            lightPos.z = aux.z;
-            shader.setUniform("pointLights", currPointLight, i);
+            PointLight currPointLight = pointLightList[i];
+            lightPosition.set(currPointLight.getPosition(), 1).mul(viewMatrix);
+            viewLightPosition.set(lightPosition.x, lightPosition.y, lightPosition.z);
+            pointLightsBuffer.put(i * UniformBuffer.POINT_LIGHT_SIZE, currPointLight, viewLightPosition);
         }
+        pointLightsBuffer.clear(numLights * UniformBuffer.POINT_LIGHT_SIZE, (MAX_POINT_LIGHTS - numLights) * UniformBuffer.POINT_LIGHT_SIZE);
+        pointLightsBuffer.upload();
+    }
+
+    /**
+     * Load a Material to the GPU
+     * @param material the Material to load
+     */
+    private void loadMaterial(Material material) {
+        materialBuffer.put(0, material);
+        materialBuffer.upload();
     }
 
     /**
@@ -175,25 +219,19 @@ public class Renderer {
     public void renderScene(Scene scene) {
         shaderProgram.bind();
 
-        Matrix4f projectionMatrix = transformation.getProjectionMatrix();
-        shaderProgram.setUniform("projectionMatrix", projectionMatrix);
-
-        Matrix4f viewMatrix = transformation.getViewMatrix();
+        projectionMatrix.set(transformation.getProjectionMatrix());
+        viewMatrix.set(transformation.getViewMatrix());
 
-        SceneLight sceneLight = scene.getSceneLight();
-        renderLights(viewMatrix, sceneLight, shaderProgram);
+        ambientLight.set(scene.getSceneLight().getAmbientLight());
+        specularPowerUniform.set(specularPower);
 
-        shaderProgram.setUniform("texture_sampler", 0);
-        shaderProgram.setUniform("normal_sampler", 1);
-        // Render each mesh with the associated game Items
+        textureSampler.set(0);
+        normalSampler.set(1);
+        // Render each mesh with all the associated game Items in a single draw call
         Map<Mesh, List<RenderableItem>> mapMeshes = scene.getMeshes();
-        for (Mesh mesh : mapMeshes.keySet()) {
-            shaderProgram.setUniform("material", mesh.getMaterial());
-            mesh.renderList(mapMeshes.get(mesh), (RenderableItem gameItem) -> {
-                        Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(gameItem, viewMatrix);
-                        shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-                    }
-            );
+        for (Map.Entry<Mesh, List<RenderableItem>> entry : mapMeshes.entrySet()) {
+            loadMaterial(entry.getKey().getMaterial());
+            entry.getKey().renderInstanced(entry.getValue(), transformation::buildModelMatrix);
         }
         shaderProgram.unbind();
     }
@@ -207,19 +245,19 @@ public class Renderer {
     private void renderSkyBox(Window window, Camera camera, Scene scene) {
         skyBoxShaderProgram.bind();
 
-        skyBoxShaderProgram.setUniform("texture_sampler", 0);
+        skyBoxTextureSampler.set(0);
 
         // Update projection Matrix
         Matrix4f projectionMatrix = transformation.updateProjectionMatrix(SettingsInterface.FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        skyBoxShaderProgram.setUniform("projectionMatrix", projectionMatrix);
+        skyBoxProjectionMatrix.set(projectionMatrix);
         SkyBox skyBox = scene.getSkyBox();
         Matrix4f viewMatrix = transformation.updateViewMatrix(camera);
         viewMatrix.m30(0);
         viewMatrix.m31(0);
         viewMatrix.m32(0);
         Matrix4f modelViewMatrix = transformation.buildModelViewMatrix(skyBox, viewMatrix);
-        skyBoxShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-        skyBoxShaderProgram.setUniform("ambientLight", scene.getSceneLight().getAmbientLight());
+        skyBoxModelViewMatrix.set(modelViewMatrix);
+        skyBoxAmbientLight.set(scene.getSceneLight().getAmbientLight());
 
         scene.getSkyBox().getMesh().render();
 
@@ -235,5 +273,14 @@ public class Renderer {
 
         if (skyBoxShaderProgram != null)
             skyBoxShaderProgram.cleanup();
+
+        if (worldShaderProgram != null)
+            worldShaderProgram.cleanup();
+
+        if (materialBuffer != null)
+            materialBuffer.cleanup();
+
+        if (pointLightsBuffer != null)
+            pointLightsBuffer.cleanup();
     }
 }
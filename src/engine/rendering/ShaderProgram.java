@@ -1,14 +1,9 @@
 package engine.rendering;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import engine.objects.PointLight;
-import org.joml.Matrix4f;
-import org.joml.Vector3f;
-import org.joml.Vector4f;
 import static org.lwjgl.opengl.GL20.*;
-import org.lwjgl.system.MemoryStack;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
 
 /**
  * This class represent a Shader used by the renderer
@@ -18,7 +13,6 @@ public class ShaderProgram {
     private final int programId;
     private int vertexShaderId;
     private int fragmentShaderId;
-    private final Map<String, Integer> uniforms;
 
     /**
      * Create a new Shader
@@ -29,147 +23,34 @@ public class ShaderProgram {
         if (programId == 0) {
             throw new Exception("Could not create Shader");
         }
-        uniforms = new HashMap<>();
     }
 
     /**
-     * Create a Uniform
+     * Create a Uniform, resolving its location once
      * @param uniformName the name of the Uniform
+     * @return the handle used to load the Uniform
      * @throws Exception thrown when unable to create the uniform
      */
-    public void createUniform(String uniformName) throws Exception {
+    public Uniform createUniform(String uniformName) throws Exception {
         int uniformLocation = glGetUniformLocation(programId, uniformName);
         if (uniformLocation < 0) {
             throw new Exception("Could not find uniform:" + uniformName);
         }
-        uniforms.put(uniformName, uniformLocation);
-    }
-
-    /**
-     * Create a Uniform array of type PointLight
-     * @param uniformName the name of the Uniform
-     * @throws Exception thrown when unable to create the uniform
-     */
-    public void createPointLightListUniform(String uniformName, int size) throws Exception {
-        for (int i = 0; i < size; i++) {
-            createPointLightUniform(uniformName + "[" + i + "]");
-        }
-    }
-
-    /**
-     * Create a Uniform of type PointLight
-     * @param uniformName the name of the Uniform
-     * @throws Exception thrown when unable to create the uniform
-     */
-    public void createPointLightUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".colour");
-        createUniform(uniformName + ".position");
-        createUniform(uniformName + ".intensity");
-        createUniform(uniformName + ".att.constant");
-        createUniform(uniformName + ".att.linear");
-        createUniform(uniformName + ".att.exponent");
-    }
-
-    /**
-     * Create a Uniform of type Material
-     * @param uniformName the name of the Uniform
-     * @throws Exception thrown when unable to create the uniform
-     */
-    public void createMaterialUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".ambient");
-        createUniform(uniformName + ".diffuse");
-        createUniform(uniformName + ".specular");
-        createUniform(uniformName + ".hasTexture");
-        createUniform(uniformName + ".hasNormal");
-        createUniform(uniformName + ".reflectance");
+        return new Uniform(uniformName, uniformLocation);
     }
 
     /**
-     * Load a Uniform of type Matrix4f
-     * @param uniformName the name of the Uniform to load
-     * @param value the value to load
+     * Bind a Uniform block of the Shader to the binding point of a Uniform Buffer
+     * @param blockName the name of the Uniform block
+     * @param buffer the Uniform Buffer providing the block
+     * @throws Exception thrown when unable to find the block
      */
-    public void setUniform(String uniformName, Matrix4f value) {
-        // Dump the matrix into a float buffer
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            glUniformMatrix4fv(uniforms.get(uniformName), false,
-                               value.get(stack.mallocFloat(16)));
+    public void bindUniformBlock(String blockName, UniformBuffer buffer) throws Exception {
+        int blockIndex = glGetUniformBlockIndex(programId, blockName);
+        if (blockIndex == GL_INVALID_INDEX) {
+            throw new Exception("Could not find uniform block:" + blockName);
         }
-    }
-
-    /**
-     * Load a Uniform of type Integer
-     * @param uniformName the name of the Uniform to load
-     * @param value the value to load
-     */
-    public void setUniform(String uniformName, int value) {
-        glUniform1i(uniforms.get(uniformName), value);
-    }
-
-    /**
-     * Load a Uniform of type Float
-     * @param uniformName the name of the Uniform to load
-     * @param value the value to load
-     */
-    public void setUniform(String uniformName, float value) {
-        glUniform1f(uniforms.get(uniformName), value);
-    }
-
-    /**
-     * Load a Uniform of type Vector3f
-     * @param uniformName the name of the Uniform to load
-     * @param value the value to load
-     */
-    public void setUniform(String uniformName, Vector3f value) {
-        glUniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
-    }
-
-    /**
-     * Load a Uniform of type Vector4f
-     * @param uniformName the name of the Uniform to load
-     * @param value the value to load
-     */
-    public void setUniform(String uniformName, Vector4f value) {
-        glUniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
-    }
-
-    /**
-     * Load a Uniform of type PointLight by its id
-     * @param uniformName the name of the Uniform to load
-     * @param pointLight the value to load
-     * @param pos the id of the Light
-     */
-    public void setUniform(String uniformName, PointLight pointLight, int pos) {
-        setUniform(uniformName + "[" + pos + "]", pointLight);
-    }
-
-    /**
-     * Load a Uniform of type PointLight
-     * @param uniformName the name of the Uniform to load
-     * @param pointLight the value to load
-     */
-    public void setUniform(String uniformName, PointLight pointLight) {
-        setUniform(uniformName + ".colour", pointLight.getColor());
-        setUniform(uniformName + ".position", pointLight.getPosition());
-        setUniform(uniformName + ".intensity", pointLight.getIntensity());
-        PointLight.Attenuation att = pointLight.getAttenuation();
-        setUniform(uniformName + ".att.constant", att.constant());
-        setUniform(uniformName + ".att.linear", att.linear());
-        setUniform(uniformName + ".att.exponent", att.exponent());
-    }
-
-    /**
-     * Load a Uniform of type Material
-     * @param uniformName the name of the Uniform to load
-     * @param material the value to load
-     */
-    public void setUniform(String uniformName, Material material) {
-        setUniform(uniformName + ".ambient", material.getAmbientColour());
-        setUniform(uniformName + ".diffuse", material.getDiffuseColour());
-        setUniform(uniformName + ".specular", material.getSpecularColour());
-        setUniform(uniformName + ".hasTexture", material.isTextured() ? 1 : 0);
-        setUniform(uniformName + ".hasNormal", material.hasNormal() ? 1 : 0);
-        setUniform(uniformName + ".reflectance", material.getReflectance());
+        glUniformBlockBinding(programId, blockIndex, buffer.getBinding());
     }
 
     /**
@@ -21,6 +21,8 @@ public class Texture {
     private final int id;
     private final int width;
     private final int height;
+    private final int internalFormat;
+    private final int format;
 
     /**
      * Create a new Texture from a file
@@ -39,6 +41,8 @@ public class Texture {
         this.id = attrib[0];
         this.width = attrib[1];
         this.height = attrib[2];
+        this.internalFormat = GL_RGBA;
+        this.format = GL_RGBA;
     }
 
     /**
@@ -47,8 +51,22 @@ public class Texture {
      * @param height the Texture height in pixels
      */
     public Texture(int width, int height) {
+        this(width, height, GL_RGBA, GL_RGBA, 4);
+    }
+
+    /**
+     * Create a new empty Texture with a specific pixel format
+     * @param width the Texture width in pixels
+     * @param height the Texture height in pixels
+     * @param internalFormat the format of the Texture in VRAM (GL_RGBA, GL_R8 ...)
+     * @param format the format of the buffers loaded in the Texture (GL_RGBA, GL_RED ...)
+     * @param bytesPerPixel the size of a pixel in the loaded buffers
+     */
+    public Texture(int width, int height, int internalFormat, int format, int bytesPerPixel) {
         this.width = width;
         this.height = height;
+        this.internalFormat = internalFormat;
+        this.format = format;
         //Generate the texture
         id = glGenTextures();
         bind();
@@ -58,7 +76,8 @@ public class Texture {
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
         //Load the buffer in VRAM
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, BufferUtils.createByteBuffer(width * height * 4));
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, GL_UNSIGNED_BYTE, BufferUtils.createByteBuffer(width * height * bytesPerPixel));
     }
 
     /**
@@ -127,7 +146,27 @@ public class Texture {
      */
     public void load(ByteBuffer buf) {
         bind();
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, buf);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, GL_UNSIGNED_BYTE, buf);
+    }
+
+    /**
+     * Load a region of a byte buffer holding the whole Texture, without re-specifying the Texture
+     * @param buf the buffer holding the whole Texture
+     * @param x X position of the region in pixels
+     * @param y Y position of the region in pixels
+     * @param regionWidth width of the region in pixels
+     * @param regionHeight height of the region in pixels
+     */
+    public void load(ByteBuffer buf, int x, int y, int regionWidth, int regionHeight) {
+        bind();
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glPixelStorei(GL_UNPACK_ROW_LENGTH, width);
+        glPixelStorei(GL_UNPACK_SKIP_PIXELS, x);
+        glPixelStorei(GL_UNPACK_SKIP_ROWS, y);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, regionWidth, regionHeight, format, GL_UNSIGNED_BYTE, buf);
+        glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+        glPixelStorei(GL_UNPACK_SKIP_PIXELS, 0);
+        glPixelStorei(GL_UNPACK_SKIP_ROWS, 0);
     }
 
     /**
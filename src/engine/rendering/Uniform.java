@@ -0,0 +1,78 @@
+package engine.rendering;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryStack;
+
+import static org.lwjgl.opengl.GL20.*;
+
+/**
+ * This class represent a Uniform of a Shader, its location is resolved once when created
+ */
+public class Uniform {
+
+    private final String name;
+    private final int location;
+
+    /**
+     * Create a new Uniform handle
+     * @param name the name of the Uniform
+     * @param location the location of the Uniform in its Shader
+     */
+    Uniform(String name, int location) {
+        this.name = name;
+        this.location = location;
+    }
+
+    /**
+     * Return the name of the Uniform
+     * @return the name of the Uniform
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Load a value of type Matrix4f
+     * @param value the value to load
+     */
+    public void set(Matrix4f value) {
+        // Dump the matrix into a float buffer
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            glUniformMatrix4fv(location, false, value.get(stack.mallocFloat(16)));
+        }
+    }
+
+    /**
+     * Load a value of type Integer
+     * @param value the value to load
+     */
+    public void set(int value) {
+        glUniform1i(location, value);
+    }
+
+    /**
+     * Load a value of type Float
+     * @param value the value to load
+     */
+    public void set(float value) {
+        glUniform1f(location, value);
+    }
+
+    /**
+     * Load a value of type Vector3f
+     * @param value the value to load
+     */
+    public void set(Vector3f value) {
+        glUniform3f(location, value.x, value.y, value.z);
+    }
+
+    /**
+     * Load a value of type Vector4f
+     * @param value the value to load
+     */
+    public void set(Vector4f value) {
+        glUniform4f(location, value.x, value.y, value.z, value.w);
+    }
+}
@@ -0,0 +1,125 @@
+package engine.rendering;
+
+import engine.objects.PointLight;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+
+/**
+ * This class represent a Uniform Buffer Object, shared by all the Shaders declaring a block at its binding point
+ * the content follows the std140 layout
+ */
+public class UniformBuffer {
+
+    //std140 size of the Material struct : 3 vec4, 2 int and 1 float padded to a vec4
+    public static final int MATERIAL_SIZE = 64;
+    //std140 size of the PointLight struct : 2 vec3, 1 float and the Attenuation struct padded to a vec4
+    public static final int POINT_LIGHT_SIZE = 48;
+
+    private final int id;
+    private final int binding;
+    private final ByteBuffer data;
+
+    /**
+     * Create a new Uniform Buffer and bind it to a binding point
+     * @param size the size of the buffer in bytes
+     * @param binding the binding point of the buffer
+     */
+    public UniformBuffer(int size, int binding) {
+        this.binding = binding;
+        this.data = MemoryUtil.memCalloc(size);
+        id = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, id);
+        glBufferData(GL_UNIFORM_BUFFER, data, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferBase(GL_UNIFORM_BUFFER, binding, id);
+    }
+
+    /**
+     * Return the binding point of the buffer
+     * @return the binding point of the buffer
+     */
+    public int getBinding() {
+        return binding;
+    }
+
+    /**
+     * Write a Material at an offset of the buffer
+     * @param offset the offset in bytes
+     * @param material the Material to write
+     */
+    public void put(int offset, Material material) {
+        put(offset, material.getAmbientColour());
+        put(offset + 16, material.getDiffuseColour());
+        put(offset + 32, material.getSpecularColour());
+        data.putInt(offset + 48, material.isTextured() ? 1 : 0);
+        data.putInt(offset + 52, material.hasNormal() ? 1 : 0);
+        data.putFloat(offset + 56, material.getReflectance());
+    }
+
+    /**
+     * Write a PointLight at an offset of the buffer
+     * @param offset the offset in bytes
+     * @param pointLight the PointLight to write
+     * @param position the position of the PointLight in view coordinates
+     */
+    public void put(int offset, PointLight pointLight, Vector3f position) {
+        put(offset, pointLight.getColor());
+        put(offset + 16, position);
+        data.putFloat(offset + 28, pointLight.getIntensity());
+        PointLight.Attenuation att = pointLight.getAttenuation();
+        data.putFloat(offset + 32, att.constant());
+        data.putFloat(offset + 36, att.linear());
+        data.putFloat(offset + 40, att.exponent());
+    }
+
+    /**
+     * Clear a range of the buffer
+     * @param offset the offset in bytes
+     * @param length the number of bytes to clear
+     */
+    public void clear(int offset, int length) {
+        MemoryUtil.memSet(MemoryUtil.memAddress(data) + offset, 0, length);
+    }
+
+    /**
+     * Write a Vector3f at an offset of the buffer
+     * @param offset the offset in bytes
+     * @param value the value to write
+     */
+    private void put(int offset, Vector3f value) {
+        data.putFloat(offset, value.x).putFloat(offset + 4, value.y).putFloat(offset + 8, value.z);
+    }
+
+    /**
+     * Write a Vector4f at an offset of the buffer
+     * @param offset the offset in bytes
+     * @param value the value to write
+     */
+    private void put(int offset, Vector4f value) {
+        data.putFloat(offset, value.x).putFloat(offset + 4, value.y).putFloat(offset + 8, value.z).putFloat(offset + 12, value.w);
+    }
+
+    /**
+     * Upload the content of the buffer to the GPU
+     */
+    public void upload() {
+        glBindBuffer(GL_UNIFORM_BUFFER, id);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    /**
+     * Cleanup the buffer
+     */
+    public void cleanup() {
+        glDeleteBuffers(id);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -12,6 +12,7 @@ import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import settings.SettingsInterface;
 import imgui.ImGuiLayer;
+import engine.utils.Profiler;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.GL_MULTISAMPLE;
@@ -22,6 +23,9 @@ import static org.lwjgl.system.MemoryUtil.NULL;
  */
 public class Window {
 
+    private static final Profiler.Section IMGUI = Profiler.section("Frame", "ImGui");
+    private static final Profiler.Section SWAP = Profiler.section("Frame", "swap");
+
     private final ImGuiImplGlfw imGuiGlfw = new ImGuiImplGlfw();
     private final ImGuiImplGl3 imGuiGl3 = new ImGuiImplGl3();
     private final ImGuiLayer imGuiLayer;
@@ -197,9 +201,11 @@ public class Window {
      * Update the Window by swapping the buffers
      */
     public void update() {
+        long start = SWAP.start();
         updateVSync();
         glfwSwapBuffers(windowHandle);
         glfwPollEvents();
+        SWAP.stop(start);
     }
 
     /**
@@ -213,10 +219,12 @@ public class Window {
     /**
      * Update the ImGui Main Layer
      * @param elapsedTime the elapsed time in seconds
-     * @param nbUpdate the number of update since last ImGui update
+     * @param updateRate the number of updates per second achieved by the logic
+     * @param jitter the frame time jitter in seconds
      */
-    public void updateImGui(double elapsedTime, int nbUpdate) {
-        imGuiLayer.render((float) elapsedTime, nbUpdate == 0 ? SettingsInterface.TARGET_UPS : (int) (nbUpdate / elapsedTime));
+    public void updateImGui(double elapsedTime, int updateRate, double jitter) {
+        long start = IMGUI.start();
+        imGuiLayer.render((float) elapsedTime, updateRate, (float) jitter);
         ImGui.render();
         imGuiGl3.renderDrawData(ImGui.getDrawData());
 
@@ -226,6 +234,7 @@ public class Window {
             ImGui.renderPlatformWindowsDefault();
             org.lwjgl.glfw.GLFW.glfwMakeContextCurrent(backupWindowPtr);
         }
+        IMGUI.stop(start);
     }
 
     /**
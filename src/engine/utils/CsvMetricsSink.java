@@ -0,0 +1,157 @@
+package engine.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class represent a MetricsSink writing the samples to rolling CSV files
+ * samples are queued and written by a background thread, a sample is dropped if the queue is full,
+ * a new file is started when the current one exceeds a size or when the metrics change
+ */
+public class CsvMetricsSink implements MetricsSink {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Row END = new Row(List.of(), 0, new double[0]);
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final BlockingQueue<Row> queue;
+    private final Thread writer;
+
+    //Only accessed by the writer thread
+    private final ArrayDeque<Path> files;
+    private BufferedWriter out;
+    private List<String> columns;
+    private long written;
+    private int fileIndex;
+
+    /**
+     * Create a new CsvMetricsSink and start its writer thread
+     * @param directory the directory to write the files to, created if missing
+     * @param prefix the prefix of the file names, followed by the creation time and the index of the file
+     * @param maxBytes the size of a file after which a new one is started
+     * @param maxFiles the number of files kept, the oldest are deleted
+     */
+    public CsvMetricsSink(Path directory, String prefix, long maxBytes, int maxFiles) {
+        this.directory = directory;
+        this.prefix = prefix + "-" + System.currentTimeMillis();
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.files = new ArrayDeque<>();
+        this.writer = new Thread(this::run, "Metrics writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a sample to be written, drop it if the writer is late
+     * @param columns the names of the metrics, the same instance as long as the metrics don't change
+     * @param timestamp the time of the sample in milliseconds since the epoch
+     * @param values the sampled values, in the order of the columns
+     */
+    @Override
+    public void write(List<String> columns, long timestamp, double[] values) {
+        queue.offer(new Row(columns, timestamp, values));
+    }
+
+    /**
+     * Write the queued samples and stop the writer thread
+     */
+    @Override
+    public void close() {
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the queued samples until the sink is closed
+     * the file is flushed whenever the queue is empty, so a crash loses at most the samples being written
+     */
+    private void run() {
+        try {
+            Files.createDirectories(directory);
+            while (true) {
+                Row row = queue.take();
+                if (row == END)
+                    break;
+                writeRow(row);
+                if (queue.isEmpty())
+                    out.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Write a sample, starting a new file when needed
+     * @param row the sample to write
+     * @throws IOException thrown when the file can't be written
+     */
+    private void writeRow(Row row) throws IOException {
+        if (out == null || row.columns != columns || written >= maxBytes)
+            roll(row.columns);
+        StringBuilder line = new StringBuilder();
+        line.append(row.timestamp);
+        for (double value : row.values)
+            line.append(',').append(String.format(Locale.ROOT, "%.4f", value));
+        line.append('\n');
+        out.write(line.toString());
+        written += line.length();
+    }
+
+    /**
+     * Close the current file and start a new one with a header, deleting the oldest files over the limit
+     * @param newColumns the names of the metrics written to the new file
+     * @throws IOException thrown when the file can't be created
+     */
+    private void roll(List<String> newColumns) throws IOException {
+        closeFile();
+        Path file = directory.resolve(prefix + "-" + fileIndex++ + ".csv");
+        out = Files.newBufferedWriter(file);
+        files.add(file);
+        while (files.size() > maxFiles)
+            Files.deleteIfExists(files.poll());
+        columns = newColumns;
+        String header = "timestamp," + String.join(",", columns) + "\n";
+        out.write(header);
+        written = header.length();
+    }
+
+    /**
+     * Flush and close the current file if any
+     */
+    private void closeFile() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        out = null;
+    }
+
+    /**
+     * This record represent a queued sample
+     */
+    private record Row(List<String> columns, long timestamp, double[] values) {}
+}
@@ -0,0 +1,80 @@
+package engine.utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class represent a frame pacer, used to wait for the end of a frame slot without burning a core
+ * it parks the thread for most of the wait and only spins for the last fraction of a millisecond,
+ * the parking margin adapts to the oversleep measured on previous waits
+ */
+public class FramePacer {
+
+    //The final part of a wait that is always spent spinning, in nanoseconds
+    private static final long SPIN_THRESHOLD = 200_000;
+    //Weight of the last measure in the running averages
+    private static final double SMOOTHING = 0.05;
+
+    private double oversleep;
+    //Written by the render thread, read by the metrics sampled on other threads
+    private volatile double frameTime;
+    private volatile double frameVariance;
+
+    /**
+     * Create a new FramePacer
+     */
+    public FramePacer() {
+        oversleep = 1_000_000;
+        frameTime = 0;
+        frameVariance = 0;
+    }
+
+    /**
+     * Wait until a deadline
+     * @param deadline the time to wait for, in nanoseconds (System.nanoTime)
+     */
+    public void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        //Park while the remaining time exceeds the expected oversleep, measuring how late each park returns
+        while (remaining > SPIN_THRESHOLD + oversleep) {
+            long request = remaining - SPIN_THRESHOLD - (long) oversleep;
+            long start = System.nanoTime();
+            LockSupport.parkNanos(request);
+            long end = System.nanoTime();
+            oversleep += SMOOTHING * (Math.max(end - start - request, 0) - oversleep);
+            remaining = deadline - end;
+        }
+        //Spin for the rest of the slot
+        while (System.nanoTime() < deadline)
+            Thread.onSpinWait();
+    }
+
+    /**
+     * Record the duration of a frame, to measure the frame time jitter
+     * @param elapsedTime the duration of the frame in seconds
+     */
+    public void recordFrame(double elapsedTime) {
+        if (frameTime == 0) {
+            frameTime = elapsedTime;
+            return;
+        }
+        double deviation = elapsedTime - frameTime;
+        frameTime += SMOOTHING * deviation;
+        frameVariance += SMOOTHING * (deviation * deviation - frameVariance);
+    }
+
+    /**
+     * Return the average frame time
+     * @return the average frame time in seconds
+     */
+    public double getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Return the frame time jitter, as the standard deviation of the frame time
+     * @return the frame time jitter in seconds
+     */
+    public double getJitter() {
+        return Math.sqrt(frameVariance);
+    }
+}
@@ -0,0 +1,160 @@
+package engine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * This class represent a registry of metrics, sampled at a fixed interval and streamed to a MetricsSink
+ * a metric is either a gauge (its current value), a rate (per second) or a ratio (per unit of another counter)
+ * of cumulative counters, sampling is driven by the thread owning the sampled state, writing is left to the sink
+ */
+public class Metrics {
+
+    private static final List<Metric> METRICS = new ArrayList<>();
+    //Names of the metrics, replaced on every registration so sinks can detect a change of columns
+    private static List<String> columns = List.of();
+    private static MetricsSink sink;
+    private static long lastSample;
+
+    /**
+     * Register a metric sampled as is
+     * a metric registered under an existing name replaces it
+     * @param name the name of the metric
+     * @param value the supplier of the current value
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        register(new Metric(name, value, null, null));
+    }
+
+    /**
+     * Register a metric sampled as the increase of a counter per second
+     * @param name the name of the metric
+     * @param total the supplier of the cumulative counter
+     */
+    public static void rate(String name, LongSupplier total) {
+        register(new Metric(name, null, total, null));
+    }
+
+    /**
+     * Register a metric sampled as the increase of a counter per increase of another counter
+     * @param name the name of the metric
+     * @param total the supplier of the cumulative counter
+     * @param per the supplier of the cumulative counter to divide by
+     */
+    public static void ratio(String name, LongSupplier total, LongSupplier per) {
+        register(new Metric(name, null, total, per));
+    }
+
+    /**
+     * Add a metric to the registry, replacing the metric with the same name if any
+     * @param metric the metric to add
+     */
+    private static synchronized void register(Metric metric) {
+        METRICS.removeIf(m -> m.name.equals(metric.name));
+        METRICS.add(metric);
+        List<String> names = new ArrayList<>();
+        for (Metric m : METRICS)
+            names.add(m.name);
+        columns = List.copyOf(names);
+    }
+
+    /**
+     * Start streaming the samples to a sink, closing the previous one if any
+     * @param newSink the sink to write the samples to
+     */
+    public static synchronized void open(MetricsSink newSink) {
+        close();
+        sink = newSink;
+        lastSample = System.nanoTime();
+        //Counters are sampled once to get a base, so the first row only covers the time since the opening
+        for (Metric metric : METRICS)
+            metric.sample(0);
+    }
+
+    /**
+     * Stop streaming the samples and close the sink
+     */
+    public static synchronized void close() {
+        if (sink != null)
+            sink.close();
+        sink = null;
+    }
+
+    /**
+     * Return whether the samples are streamed to a sink
+     * @return is a sink open
+     */
+    public static synchronized boolean isOpen() {
+        return sink != null;
+    }
+
+    /**
+     * Sample every metric and send them to the sink if the interval has elapsed since the last sample
+     * must be called from the thread updating the sampled state, between two updates
+     * @param interval the minimum time between two samples in seconds
+     */
+    public static synchronized void sample(double interval) {
+        if (sink == null)
+            return;
+        long now = System.nanoTime();
+        double elapsed = (now - lastSample) / 1_000_000_000.0;
+        if (elapsed < interval)
+            return;
+        lastSample = now;
+        double[] values = new double[METRICS.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = METRICS.get(i).sample(elapsed);
+        sink.write(columns, System.currentTimeMillis(), values);
+    }
+
+    /**
+     * This class represent a registered metric and the last value of its counters
+     */
+    private static class Metric {
+
+        private final String name;
+        private final DoubleSupplier gauge;
+        private final LongSupplier total;
+        private final LongSupplier per;
+        private long lastTotal;
+        private long lastPer;
+
+        /**
+         * Create a new metric, only the suppliers of its kind are set
+         * @param name the name of the metric
+         * @param gauge the supplier of the current value of a gauge
+         * @param total the supplier of the counter of a rate or ratio
+         * @param per the supplier of the divisor of a ratio
+         */
+        private Metric(String name, DoubleSupplier gauge, LongSupplier total, LongSupplier per) {
+            this.name = name;
+            this.gauge = gauge;
+            this.total = total;
+            this.per = per;
+            this.lastTotal = total != null ? total.getAsLong() : 0;
+            this.lastPer = per != null ? per.getAsLong() : 0;
+        }
+
+        /**
+         * Return the value of the metric since the last sample
+         * @param elapsed the time elapsed since the last sample in seconds
+         * @return the sampled value
+         */
+        private double sample(double elapsed) {
+            if (gauge != null)
+                return gauge.getAsDouble();
+            long t = total.getAsLong();
+            //A counter summed over live threads or objects can decrease, it is never reported as negative
+            long delta = Math.max(t - lastTotal, 0);
+            lastTotal = t;
+            if (per == null)
+                return elapsed > 0 ? delta / elapsed : 0;
+            long p = per.getAsLong();
+            long deltaPer = p - lastPer;
+            lastPer = p;
+            return deltaPer > 0 ? (double) delta / deltaPer : 0;
+        }
+    }
+}
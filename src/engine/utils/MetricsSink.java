@@ -0,0 +1,23 @@
+package engine.utils;
+
+import java.util.List;
+
+/**
+ * This interface represent a destination of the samples taken by Metrics
+ * writing must not block the sampling thread
+ */
+public interface MetricsSink {
+
+    /**
+     * Write a sample
+     * @param columns the names of the metrics, the same instance as long as the metrics don't change
+     * @param timestamp the time of the sample in milliseconds since the epoch
+     * @param values the sampled values, in the order of the columns
+     */
+    void write(List<String> columns, long timestamp, double[] values);
+
+    /**
+     * Write the pending samples and release the resources of the sink
+     */
+    void close();
+}
@@ -0,0 +1,108 @@
+package engine.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class represent a profiler, recording the duration of the phases of the updates and frames
+ * every phase keeps its last durations in a ring buffer, written by a single thread and read without locking
+ */
+public class Profiler {
+
+    //Number of durations kept per phase, must be a power of 2
+    public static final int CAPACITY = 512;
+
+    private static final List<Section> SECTIONS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a new profiled phase
+     * @param group the group of the phase, (Tick, Frame ...)
+     * @param name the name of the phase
+     * @return the phase to record durations to
+     */
+    public static Section section(String group, String name) {
+        Section section = new Section(group, name);
+        SECTIONS.add(section);
+        return section;
+    }
+
+    /**
+     * Return all the profiled phases, in creation order
+     * @return the list of the profiled phases
+     */
+    public static List<Section> getSections() {
+        return SECTIONS;
+    }
+
+    /**
+     * This class represent a profiled phase and its last recorded durations
+     */
+    public static class Section {
+
+        private final String group;
+        private final String name;
+        private final long[] durations;
+        //Number of durations recorded since the creation, published after every write
+        private volatile long count;
+
+        /**
+         * Create a new phase
+         * @param group the group of the phase
+         * @param name the name of the phase
+         */
+        private Section(String group, String name) {
+            this.group = group;
+            this.name = name;
+            this.durations = new long[CAPACITY];
+            this.count = 0;
+        }
+
+        /**
+         * Return the group of the phase
+         * @return the group of the phase
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * Return the name of the phase
+         * @return the name of the phase
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Start timing the phase
+         * @return the start time to pass to stop()
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Stop timing the phase and record its duration
+         * must always be called from the same thread for a given phase
+         * @param start the time returned by start()
+         */
+        public void stop(long start) {
+            long n = count;
+            durations[(int) (n & (CAPACITY - 1))] = System.nanoTime() - start;
+            count = n + 1;
+        }
+
+        /**
+         * Copy the last recorded durations, the most recent first
+         * @param into the array to copy to, of at least CAPACITY elements
+         * @return the number of durations copied
+         */
+        public int copy(long[] into) {
+            long n = count;
+            int size = (int) Math.min(n, CAPACITY);
+            for (int i = 0; i < size; i++)
+                into[i] = durations[(int) ((n - 1 - i) & (CAPACITY - 1))];
+            return size;
+        }
+    }
+}
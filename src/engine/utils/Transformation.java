@@ -73,6 +73,20 @@ public class Transformation {
         return viewMatrix;
     }
 
+    /**
+     * Calculate the model matrix, used to place the object on the correct place in the World with the correct shape and size
+     * @param gameItem the item to render
+     * @return the model matrix of this item
+     */
+    public Matrix4f buildModelMatrix(RenderableItem gameItem) {
+        Vector3f rotation = gameItem.getRotation();
+        return modelMatrix.identity().translate(gameItem.getPosition()).
+                rotateX((float)Math.toRadians(-rotation.x)).
+                rotateY((float)Math.toRadians(-rotation.y)).
+                rotateZ((float)Math.toRadians(-rotation.z)).
+                scale(gameItem.getScale());
+    }
+
     /**
      * Calculate the model view matrix, used to place the object on the correct place in the Camera's FOV and render it with the correct shape and size
      * @param gameItem the item to render
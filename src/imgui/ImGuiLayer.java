@@ -1,18 +1,29 @@
 package imgui;
 
 import engine.rendering.Engine;
+import imgui.type.ImInt;
 import simulation.Simulation;
 import settings.SettingsContainer;
+import settings.SettingsInterface;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * This class represent the main ImGui Layer, in charge of rendering every subsequent Layers
  */
 public class ImGuiLayer {
 
+    private static final Path SNAPSHOT = Path.of("world.snap");
+    private static final Path RECORDING_SNAPSHOT = Path.of("recording.snap");
+    private static final Path RECORDING_LOG = Path.of("recording.log");
+
     private final Simulation simulation;
     private final SettingsLayer settingsLayer;
     private final MapLayer mapLayer;
+    private final ProfilerLayer profilerLayer;
     private Engine engine;
+    private final ImInt replayTarget = new ImInt(0);
 
     /**
      * Create a new ImGui Layer
@@ -23,6 +34,7 @@ public class ImGuiLayer {
         this.simulation = simulation;
         settingsLayer = new SettingsLayer(simulation, settingsContainer);
         mapLayer = new MapLayer(simulation);
+        profilerLayer = new ProfilerLayer();
     }
 
     /**
@@ -32,7 +44,13 @@ public class ImGuiLayer {
         mapLayer.initTexture();
     }
 
-    public void render(float elapsedTime, int nbUpdates) {
+    /**
+     * Render the main menu bar and the visible Layers
+     * @param elapsedTime the duration of the last frame in seconds
+     * @param nbUpdates the number of updates per second achieved
+     * @param jitter the frame time jitter in seconds
+     */
+    public void render(float elapsedTime, int nbUpdates, float jitter) {
         ImGui.beginMainMenuBar();
         if (ImGui.beginMenu("Options")) {
             if (ImGui.menuItem("Pause")) {
@@ -46,6 +64,52 @@ public class ImGuiLayer {
                 simulation.reset();
                 engine.prepareImGuiTexture();
             }
+            ImGui.separator();
+            if (ImGui.menuItem("Save snapshot")) {
+                try {
+                    simulation.save(SNAPSHOT);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (ImGui.menuItem("Load snapshot")) {
+                try {
+                    simulation.load(SNAPSHOT);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                engine.prepareImGuiTexture();
+            }
+            ImGui.separator();
+            if (ImGui.menuItem(simulation.isRecording() ? "Stop recording" : "Start recording")) {
+                try {
+                    if (simulation.isRecording())
+                        simulation.stopRecording();
+                    else
+                        simulation.startRecording(RECORDING_SNAPSHOT, RECORDING_LOG);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (ImGui.menuItem("Replay recording")) {
+                try {
+                    simulation.replay(RECORDING_SNAPSHOT, RECORDING_LOG);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                engine.prepareImGuiTexture();
+            }
+            if (simulation.isReplaying()) {
+                ImGui.inputInt("Replay update", replayTarget);
+                if (ImGui.menuItem("Go to update")) {
+                    try {
+                        replayTarget.set(simulation.seekReplay(replayTarget.get()));
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                    engine.prepareImGuiTexture();
+                }
+            }
             ImGui.endMenu();
         }
         if (ImGui.beginMenu("Settings")) {
@@ -56,15 +120,25 @@ public class ImGuiLayer {
             mapLayer.setVisible(!mapLayer.isVisible());
             ImGui.endMenu();
         }
-        ImGui.textColored(255, 255, 0, 255, nbUpdates + " updates");
+        if (ImGui.beginMenu("Profiler")) {
+            profilerLayer.setVisible(!profilerLayer.isVisible());
+            ImGui.endMenu();
+        }
+        ImGui.textColored(255, 255, 0, 255, nbUpdates + " ticks/sec" + (SettingsInterface.TURBO ? " (turbo)" : "") + (simulation.isReplaying() ? " (replay)" : simulation.isRecording() ? " (recording)" : ""));
+        ImGui.sameLine();
+        ImGui.textColored(255, 255, 0, 255, "     " + ((int)(100f/elapsedTime)/100f) + " fps");
+        ImGui.sameLine();
+        ImGui.textColored(255, 255, 0, 255, "  +/- " + ((int)(jitter * 100000f)/100f) + " ms   ");
         ImGui.sameLine();
-        ImGui.textColored(255, 255, 0, 255, "     " + ((int)(100f/elapsedTime)/100f) + " fps   ");
+        ImGui.textColored(255, 255, 0, 255, "  sorted " + ((int)(simulation.getWorld().getSortingQuality().getRatio() * 1000f)/10f) + " %   ");
         ImGui.endMainMenuBar();
 
         if (settingsLayer.isVisible())
             settingsLayer.render();
         if (mapLayer.isVisible())
             mapLayer.render();
+        if (profilerLayer.isVisible())
+            profilerLayer.render();
     }
 
     /**
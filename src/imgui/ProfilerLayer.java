@@ -0,0 +1,131 @@
+package imgui;
+
+import engine.utils.Profiler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represent the Profiler window, showing the duration of every phase of the updates and frames
+ */
+public class ProfilerLayer extends Layer {
+
+    private static final float BAR_HEIGHT = 20;
+
+    private final long[] durations;
+    private final long[] medians;
+
+    /**
+     * Create a new instance of the Layer
+     */
+    public ProfilerLayer() {
+        super();
+        durations = new long[Profiler.CAPACITY];
+        medians = new long[64];
+    }
+
+    /**
+     * Render the layer to the screen
+     * a table of rolling percentiles per phase, then a bar per group with every phase sized by its median duration
+     */
+    public void render() {
+        ImGui.begin("Profiler");
+        ImGui.setWindowSize(520, 420);
+        ImGui.newLine();
+        ImGui.sameLine(470);
+        if (ImGui.button("Exit"))
+            setVisible(false);
+
+        List<Profiler.Section> sections = Profiler.getSections();
+        if (ImGui.beginTable("phases", 5)) {
+            ImGui.tableSetupColumn("Phase");
+            ImGui.tableSetupColumn("p50 (ms)");
+            ImGui.tableSetupColumn("p95 (ms)");
+            ImGui.tableSetupColumn("p99 (ms)");
+            ImGui.tableSetupColumn("max (ms)");
+            ImGui.tableHeadersRow();
+            for (int i = 0; i < sections.size() && i < medians.length; i++) {
+                Profiler.Section section = sections.get(i);
+                int count = section.copy(durations);
+                Arrays.sort(durations, 0, count);
+                medians[i] = percentile(count, 0.5);
+                ImGui.tableNextColumn();
+                ImGui.text(section.getGroup() + " / " + section.getName());
+                ImGui.tableNextColumn();
+                ImGui.text(format(medians[i]));
+                ImGui.tableNextColumn();
+                ImGui.text(format(percentile(count, 0.95)));
+                ImGui.tableNextColumn();
+                ImGui.text(format(percentile(count, 0.99)));
+                ImGui.tableNextColumn();
+                ImGui.text(format(count > 0 ? durations[count - 1] : 0));
+            }
+            ImGui.endTable();
+        }
+
+        //One bar per group, every phase takes a share of the bar proportional to its median duration
+        ImGui.newLine();
+        for (int i = 0; i < sections.size() && i < medians.length; i++) {
+            String group = sections.get(i).getGroup();
+            boolean first = true;
+            for (int j = 0; j < i && first; j++)
+                first = !sections.get(j).getGroup().equals(group);
+            if (first)
+                renderBar(sections, group);
+        }
+        ImGui.end();
+    }
+
+    /**
+     * Render the bar of a group of phases
+     * @param sections all the profiled phases
+     * @param group the group to render
+     */
+    private void renderBar(List<Profiler.Section> sections, String group) {
+        long total = 0;
+        for (int i = 0; i < sections.size() && i < medians.length; i++)
+            if (sections.get(i).getGroup().equals(group))
+                total += medians[i];
+        ImGui.text(group + " : " + format(total) + " ms");
+        float x = ImGui.getCursorScreenPosX();
+        float y = ImGui.getCursorScreenPosY();
+        float width = ImGui.getContentRegionAvailX();
+        ImGui.dummy(width, BAR_HEIGHT);
+        if (total == 0)
+            return;
+        ImDrawList drawList = ImGui.getWindowDrawList();
+        int shade = 0;
+        for (int i = 0; i < sections.size() && i < medians.length; i++) {
+            Profiler.Section section = sections.get(i);
+            if (!section.getGroup().equals(group))
+                continue;
+            float w = width * medians[i] / total;
+            float light = (shade++ % 2 == 0) ? 0.8f : 0.6f;
+            drawList.addRectFilled(x, y, x + w, y + BAR_HEIGHT, ImGui.getColorU32(light, light * 0.6f, 0.2f, 1f));
+            if (w > 40)
+                drawList.addText(x + 2, y + 3, ImGui.getColorU32(0f, 0f, 0f, 1f), section.getName());
+            x += w;
+        }
+    }
+
+    /**
+     * Return a percentile of the sorted durations
+     * @param count the number of sorted durations
+     * @param rank the percentile to return from 0 to 1
+     * @return the duration at the percentile in nanoseconds
+     */
+    private long percentile(int count, double rank) {
+        if (count == 0)
+            return 0;
+        return durations[Math.min((int) (rank * count), count - 1)];
+    }
+
+    /**
+     * Format a duration in milliseconds
+     * @param nanos the duration in nanoseconds
+     * @return the formatted duration
+     */
+    private static String format(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
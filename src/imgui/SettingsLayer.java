@@ -111,6 +111,9 @@ public class SettingsLayer extends Layer {
                     ImGui.setNextItemOpen(true);
                     if (ImGui.treeNode("World")) {
                         settingsContainer.getSetting(SettingIdentifiers.WORLD_SIZE).process();
+                        settingsContainer.getSetting(SettingIdentifiers.SEED).process();
+                        settingsContainer.getSetting(SettingIdentifiers.PARALLEL_UPDATE).process();
+                        settingsContainer.getSetting(SettingIdentifiers.TILE_SIZE).process();
                         ImGui.treePop();
                     }
                     ImGui.endTabItem();
@@ -134,6 +137,10 @@ public class SettingsLayer extends Layer {
                     if (ImGui.treeNode("Misc")) {
                         settingsContainer.getSetting(SettingIdentifiers.SHOW_MARKERS).process();
                         settingsContainer.getSetting(SettingIdentifiers.SPEED).process();
+                        settingsContainer.getSetting(SettingIdentifiers.TURBO).process();
+                        settingsContainer.getSetting(SettingIdentifiers.TURBO_SAMPLE_RATE).process();
+                        settingsContainer.getSetting(SettingIdentifiers.METRICS).process();
+                        settingsContainer.getSetting(SettingIdentifiers.METRICS_INTERVAL).process();
                         settingsContainer.getSetting(SettingIdentifiers.FPS_TARGET).process();
                         settingsContainer.getSetting(SettingIdentifiers.VSYNC).process();
                         settingsContainer.getSetting(SettingIdentifiers.ANIMATION).process();
@@ -29,7 +29,14 @@ public enum SettingIdentifiers {
     CAMERA_POS_STEP("Cam movement rate"),
     FOV("Field of View"),
     ANIMATION("Enable animations"),
-    FPS_TARGET("Target FPS");
+    FPS_TARGET("Target FPS"),
+    PARALLEL_UPDATE("Parallel agent update"),
+    TILE_SIZE("Tile size (0 = no tiles)"),
+    TURBO("Turbo (unthrottled updates)"),
+    TURBO_SAMPLE_RATE("Turbo snapshots/sec"),
+    METRICS("Export metrics (metrics/*.csv)"),
+    METRICS_INTERVAL("Metrics interval (sec)"),
+    SEED("Seed (0 = random)");
 
     private final String description;
 
@@ -3,6 +3,7 @@ package settings;
 import imgui.ImGui;
 import imgui.flag.ImGuiColorEditFlags;
 import imgui.type.ImBoolean;
+import imgui.type.ImInt;
 import org.joml.Vector4f;
 
 import java.io.FileReader;
@@ -209,6 +210,55 @@ public class SettingsContainer {
                 SettingsInterface.CAMERA_POS_STEP = setting.getValue()/100f;
             }
         }));
+        settings.put(SettingIdentifiers.PARALLEL_UPDATE, new Setting<>(SettingIdentifiers.PARALLEL_UPDATE, false, (Setting<Boolean> setting) -> {
+            ImBoolean tmp = new ImBoolean(setting.getValue());
+            if (ImGui.checkbox(setting.getIdentifier().getDescription(), tmp)) {
+                setting.setValue(tmp.get());
+                SettingsInterface.PARALLEL_UPDATE = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.TILE_SIZE, new Setting<>(SettingIdentifiers.TILE_SIZE, 0, (Setting<Integer> setting) -> {
+            int[] tmp = {setting.getValue()};
+            if (ImGui.sliderInt(setting.getIdentifier().getDescription(), tmp, 0, 512)) {
+                setting.setValue(tmp[0]);
+                SettingsInterface.TILE_SIZE = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.TURBO, new Setting<>(SettingIdentifiers.TURBO, false, (Setting<Boolean> setting) -> {
+            ImBoolean tmp = new ImBoolean(setting.getValue());
+            if (ImGui.checkbox(setting.getIdentifier().getDescription(), tmp)) {
+                setting.setValue(tmp.get());
+                SettingsInterface.TURBO = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.TURBO_SAMPLE_RATE, new Setting<>(SettingIdentifiers.TURBO_SAMPLE_RATE, 10, (Setting<Integer> setting) -> {
+            int[] tmp = {setting.getValue()};
+            if (ImGui.sliderInt(setting.getIdentifier().getDescription(), tmp, 1, 60)) {
+                setting.setValue(tmp[0]);
+                SettingsInterface.TURBO_SAMPLE_RATE = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.METRICS, new Setting<>(SettingIdentifiers.METRICS, false, (Setting<Boolean> setting) -> {
+            ImBoolean tmp = new ImBoolean(setting.getValue());
+            if (ImGui.checkbox(setting.getIdentifier().getDescription(), tmp)) {
+                setting.setValue(tmp.get());
+                SettingsInterface.METRICS = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.METRICS_INTERVAL, new Setting<>(SettingIdentifiers.METRICS_INTERVAL, 1, (Setting<Integer> setting) -> {
+            int[] tmp = {setting.getValue()};
+            if (ImGui.sliderInt(setting.getIdentifier().getDescription(), tmp, 1, 60)) {
+                setting.setValue(tmp[0]);
+                SettingsInterface.METRICS_INTERVAL = setting.getValue();
+            }
+        }));
+        settings.put(SettingIdentifiers.SEED, new Setting<>(SettingIdentifiers.SEED, 0, (Setting<Integer> setting) -> {
+            ImInt tmp = new ImInt(setting.getValue());
+            if (ImGui.inputInt(setting.getIdentifier().getDescription(), tmp)) {
+                setting.setValue(tmp.get());
+                SettingsInterface.SEED = setting.getValue();
+            }
+        }));
         loadFile(file);
     }
 
@@ -284,6 +334,13 @@ public class SettingsContainer {
                 case FOV -> SettingsInterface.FOV = (float) Math.toRadians((int) setting.getValue());
                 case ANIMATION -> SettingsInterface.ANIMATION = (boolean) setting.getValue();
                 case ENABLE_MARKER -> SettingsInterface.ENABLE_MARKER = (boolean) setting.getValue();
+                case PARALLEL_UPDATE -> SettingsInterface.PARALLEL_UPDATE = (boolean) setting.getValue();
+                case TILE_SIZE -> SettingsInterface.TILE_SIZE = (int) setting.getValue();
+                case TURBO -> SettingsInterface.TURBO = (boolean) setting.getValue();
+                case TURBO_SAMPLE_RATE -> SettingsInterface.TURBO_SAMPLE_RATE = (int) setting.getValue();
+                case METRICS -> SettingsInterface.METRICS = (boolean) setting.getValue();
+                case METRICS_INTERVAL -> SettingsInterface.METRICS_INTERVAL = (int) setting.getValue();
+                case SEED -> SettingsInterface.SEED = (int) setting.getValue();
 
             }
         }
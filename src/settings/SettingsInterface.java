@@ -33,4 +33,11 @@ public class SettingsInterface {
     public static float MOUSE_SENSITIVITY = 0.2f;
     public static  float FOV = (float) Math.toRadians(120.0f);
     public static float CAMERA_POS_STEP = 0.05f;
+    public static boolean PARALLEL_UPDATE = false;
+    public static int TILE_SIZE = 0;
+    public static boolean TURBO = false;
+    public static int TURBO_SAMPLE_RATE = 10;
+    public static boolean METRICS = false;
+    public static int METRICS_INTERVAL = 1;
+    public static int SEED = 0;
 }
@@ -0,0 +1,149 @@
+package settings;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+
+/**
+ * This record represent the parameters of a Simulation, fixed for as long as the instance is used
+ * a Simulation either follows the SettingsInterface, taking a new SimulationConfig whenever the settings change,
+ * or runs with its own SimulationConfig, so Simulations with different parameters can run side by side
+ * @param worldSize the size of the World
+ * @param agentCount the number of Agents generated
+ * @param aCount the number of Objects of type A generated
+ * @param bCount the number of Objects of type B generated
+ * @param cCount the number of Objects of type C generated
+ * @param seed the seed of the generation, 0 for a new one on every generation
+ * @param memorySize the number of cells remembered by an Agent
+ * @param maxMoveDist the maximum distance of a move
+ * @param kPlus the pick-up constant
+ * @param kMinus the put-down constant
+ * @param errorRate the probability of an Agent recognizing the wrong type of Object
+ * @param giveUpCooldown the time an Agent waits for help before giving up, in seconds
+ * @param markerCooldown the time between two help markers of an Agent, in seconds
+ * @param markerRadius the radius of the help markers
+ * @param markerAttenuation the attenuation of the help markers on every update
+ * @param enableMarker whether the Agents follow the help markers
+ * @param parallelUpdate whether the Agents decide concurrently
+ * @param tileSize the size of the tiles updated concurrently, 0 to disable them
+ * @param updateRate the number of updates per simulated second (SPEED in the config files)
+ */
+public record SimulationConfig(int worldSize, int agentCount, int aCount, int bCount, int cCount, int seed,
+                               int memorySize, int maxMoveDist, float kPlus, float kMinus, float errorRate,
+                               float giveUpCooldown, float markerCooldown, int markerRadius, float markerAttenuation,
+                               boolean enableMarker, boolean parallelUpdate, int tileSize, int updateRate) {
+
+    /**
+     * Return a SimulationConfig holding the current values of the SettingsInterface
+     * the SettingsInterface is the only source of default values, other configs are derived from it with set()
+     * @return the current settings
+     */
+    public static SimulationConfig fromSettings() {
+        return new SimulationConfig(SettingsInterface.WORLD_SIZE, SettingsInterface.AGENT_COUNT,
+                SettingsInterface.A_COUNT, SettingsInterface.B_COUNT, SettingsInterface.C_COUNT, SettingsInterface.SEED,
+                SettingsInterface.MEMORY_SIZE, SettingsInterface.MAX_MOVE_DIST, SettingsInterface.K_PLUS,
+                SettingsInterface.K_MINUS, SettingsInterface.ERROR_RATE, SettingsInterface.GIVE_UP_COOLDOWN,
+                SettingsInterface.MARKER_COOLDOWN, SettingsInterface.MARKER_RADIUS, SettingsInterface.MARKER_ATTENUATION,
+                SettingsInterface.ENABLE_MARKER, SettingsInterface.PARALLEL_UPDATE, SettingsInterface.TILE_SIZE,
+                SettingsInterface.TARGET_UPS);
+    }
+
+    /**
+     * Return whether the SimulationConfig holds the current values of the SettingsInterface
+     * checked on every update by the Simulations following the settings, so it doesn't allocate
+     * @return are all the parameters equal to the settings
+     */
+    public boolean matchesSettings() {
+        return worldSize == SettingsInterface.WORLD_SIZE
+                && agentCount == SettingsInterface.AGENT_COUNT
+                && aCount == SettingsInterface.A_COUNT
+                && bCount == SettingsInterface.B_COUNT
+                && cCount == SettingsInterface.C_COUNT
+                && seed == SettingsInterface.SEED
+                && memorySize == SettingsInterface.MEMORY_SIZE
+                && maxMoveDist == SettingsInterface.MAX_MOVE_DIST
+                && kPlus == SettingsInterface.K_PLUS
+                && kMinus == SettingsInterface.K_MINUS
+                && errorRate == SettingsInterface.ERROR_RATE
+                && giveUpCooldown == SettingsInterface.GIVE_UP_COOLDOWN
+                && markerCooldown == SettingsInterface.MARKER_COOLDOWN
+                && markerRadius == SettingsInterface.MARKER_RADIUS
+                && markerAttenuation == SettingsInterface.MARKER_ATTENUATION
+                && enableMarker == SettingsInterface.ENABLE_MARKER
+                && parallelUpdate == SettingsInterface.PARALLEL_UPDATE
+                && tileSize == SettingsInterface.TILE_SIZE
+                && updateRate == SettingsInterface.TARGET_UPS;
+    }
+
+    /**
+     * Return a copy of the SimulationConfig with a parameter changed
+     * the parameter is found from its key in the config files : K_PLUS sets kPlus, SPEED sets the update rate
+     * @param key the key of the parameter, as written in the config files
+     * @param value the new value of the parameter
+     * @return a new SimulationConfig
+     * @throws IllegalArgumentException thrown when the key isn't a parameter of the Simulation or the value can't be parsed
+     */
+    public SimulationConfig set(String key, String value) {
+        String name = componentName(key);
+        RecordComponent[] components = SimulationConfig.class.getRecordComponents();
+        java.lang.Object[] values = new java.lang.Object[components.length];
+        boolean found = false;
+        try {
+            for (int i = 0; i < components.length; i++) {
+                RecordComponent component = components[i];
+                if (component.getName().equals(name)) {
+                    values[i] = parse(component.getType(), value.trim());
+                    found = true;
+                } else {
+                    values[i] = component.getAccessor().invoke(this);
+                }
+            }
+            if (!found)
+                throw new IllegalArgumentException("Unknown simulation parameter " + key);
+            Class<?>[] types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+            Constructor<SimulationConfig> constructor = SimulationConfig.class.getDeclaredConstructor(types);
+            return constructor.newInstance(values);
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the name of the record component set by a config file key
+     * @param key the key of the parameter, as written in the config files
+     * @return the name of the component, in camel case
+     */
+    private static String componentName(String key) {
+        if (key.equals("SPEED"))
+            return "updateRate";
+        StringBuilder name = new StringBuilder();
+        boolean upper = false;
+        for (char c : key.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Parse the value of a parameter
+     * @param type the type of the parameter
+     * @param value the value to parse
+     * @return the parsed value
+     * @throws IllegalArgumentException thrown when the value can't be parsed
+     */
+    private static java.lang.Object parse(Class<?> type, String value) {
+        if (type == int.class)
+            return Integer.parseInt(value);
+        if (type == float.class)
+            return Float.parseFloat(value);
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false"))
+            throw new IllegalArgumentException("Not a boolean : " + value);
+        return Boolean.parseBoolean(value);
+    }
+}
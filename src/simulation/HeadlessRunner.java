@@ -0,0 +1,55 @@
+package simulation;
+
+import settings.SimulationConfig;
+
+/**
+ * This class runs a Simulation without any Window or GL context
+ * updates are chained as fast as the CPU allows
+ */
+public class HeadlessRunner {
+
+    private final Simulation simulation;
+
+    /**
+     * Create a new HeadlessRunner and generate a headless Simulation
+     * the Simulation is generated from the current values of the SettingsInterface
+     */
+    public HeadlessRunner() {
+        simulation = new Simulation();
+        simulation.initHeadless();
+    }
+
+    /**
+     * Create a new HeadlessRunner and generate a headless Simulation with its own parameters
+     * @param config the parameters of the Simulation
+     */
+    public HeadlessRunner(SimulationConfig config) {
+        simulation = new Simulation(config);
+        simulation.initHeadless();
+    }
+
+    /**
+     * Run a set number of updates
+     * each update simulates 1/update rate sec, to keep timers consistent with the windowed Simulation
+     * @param ticks the number of updates to run
+     * @return the number of updates per second achieved
+     */
+    public double run(int ticks) {
+        double interval = 1.0 / simulation.getConfig().updateRate();
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++)
+            simulation.tick(interval);
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+        //Write the pending metrics before the program may exit
+        simulation.closeMetrics();
+        return ticks / elapsed;
+    }
+
+    /**
+     * Return the Simulation driven by the runner
+     * @return the headless Simulation
+     */
+    public Simulation getSimulation() {
+        return simulation;
+    }
+}
@@ -1,5 +1,9 @@
 package simulation;
 
+import engine.objects.Scene;
+import engine.utils.CsvMetricsSink;
+import engine.utils.Metrics;
+import engine.utils.Profiler;
 import engine.rendering.Window;
 import engine.rendering.Material;
 import engine.rendering.Mesh;
@@ -8,19 +12,57 @@ import engine.rendering.Texture;
 import org.joml.Vector2i;
 import org.lwjgl.BufferUtils;
 import settings.SettingsInterface;
+import settings.SimulationConfig;
+import simulation.objects.ActionLog;
+import simulation.objects.ActionReplayer;
 import simulation.objects.Agent;
 import simulation.objects.Object;
 import simulation.objects.World;
+import simulation.objects.WorldFile;
+import simulation.objects.WorldTiles;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class Simulation extends ConcreteLogic {
 
+    private static final Profiler.Section WORLD_UPDATE = Profiler.section("Tick", "World.update");
+    private static final Profiler.Section AGENTS_UPDATE = Profiler.section("Tick", "Agents");
+    private static final Profiler.Section REPLAY = Profiler.section("Tick", "Replay");
+    private static final Profiler.Section ANIMATE = Profiler.section("Frame", "animate");
+    private static final Profiler.Section RENDER_MARKERS = Profiler.section("Frame", "renderMarkers");
+
+    //Metrics files are rolled every 16MB, only the last 10 are kept
+    private static final long METRICS_FILE_SIZE = 16 << 20;
+    private static final int METRICS_FILES = 10;
+
+    //Parameters of the World and the Agents, replaced between two updates when following the settings
+    private SimulationConfig config;
+    private final boolean followSettings;
     private List<Agent> agents;
-    private boolean paused = false;
+    private volatile boolean paused = false;
+    private boolean headless = false;
+    //Held by the simulation thread during every update, and while the scene is regenerated
+    private final java.lang.Object lock = new java.lang.Object();
+    private SimulationThread updater;
+    //Number of updates run, and actions of the Agents removed by a reset, for the metrics
+    private long tickCount;
+    private final long[] retiredActions = new long[Agent.Action.VALUES.length];
+    private boolean metricsOpen = false;
+    //Seed of the current scene, every random stream of the Simulation is split from it
+    private long seed;
+    private SplittableRandom rand;
+    //Recorder of the World changes, and replayer driving the World instead of the Agents, null when unused
+    private volatile ActionLog actionLog;
+    private volatile ActionReplayer replayer;
+    private Path replaySnapshot;
+    private Path replayLog;
     private Mesh worldMesh;
     private Mesh agentMesh;
     private Mesh aMesh;
@@ -29,7 +71,32 @@ public class Simulation extends ConcreteLogic {
 
     private ByteBuffer[] worldBuffers;
 
-    private double animationPercent;
+    /**
+     * Create a new Simulation following the SettingsInterface
+     * the parameters changed in the settings are applied before the next update
+     */
+    public Simulation() {
+        this(SimulationConfig.fromSettings(), true);
+    }
+
+    /**
+     * Create a new Simulation with its own parameters, the settings changes are ignored
+     * such a Simulation isn't profiled and doesn't publish to the Metrics, which only follow the Simulation driven by the settings
+     * @param config the parameters of the Simulation
+     */
+    public Simulation(SimulationConfig config) {
+        this(config, false);
+    }
+
+    /**
+     * Create a new Simulation
+     * @param config the initial parameters of the Simulation
+     * @param followSettings should the parameters follow the SettingsInterface
+     */
+    private Simulation(SimulationConfig config, boolean followSettings) {
+        this.config = config;
+        this.followSettings = followSettings;
+    }
 
     /**
      * Initialize meshes, models and generate the scene of the simulation
@@ -39,7 +106,6 @@ public class Simulation extends ConcreteLogic {
     @Override
     public void init(Window window) throws Exception {
         super.init(window);
-        animationPercent = 0;
         agents = new ArrayList<>();
         worldMesh = OBJLoader.loadMesh("/models/quad.obj").setMaterial(new Material(new Texture("textures/Ground_04.png"), new Texture("textures/Ground_04_Nrm.png"), 1f));
         aMesh = OBJLoader.loadMesh("/models/sphere.obj").setMaterial(new Material(SettingsInterface.A_COLOR, 1f));
@@ -47,53 +113,203 @@ public class Simulation extends ConcreteLogic {
         cMesh = OBJLoader.loadMesh("/models/sphere.obj").setMaterial(new Material(SettingsInterface.C_COLOR, 1f));
         agentMesh = OBJLoader.loadMesh("/models/agent.obj").setMaterial(new Material(new Texture("textures/agent.png"), null, 1f));
         generateScene();
+        if (followSettings)
+            registerMetrics();
+    }
+
+    /**
+     * Initialize the simulation without any Window or GL context
+     * no meshes or textures are loaded and nothing is registered for rendering
+     */
+    public void initHeadless() {
+        headless = true;
+        scene = new Scene();
+        agents = new ArrayList<>();
+        generateScene();
+        if (followSettings)
+            registerMetrics();
     }
 
     /**
-     * Generate the scene (Agents, objects and World)
+     * Register the metrics of the simulation, sampled by the thread running the updates
+     */
+    private void registerMetrics() {
+        Metrics.rate("ticks_per_sec", () -> tickCount);
+        for (Agent.Action action : Agent.Action.VALUES)
+            Metrics.ratio(action.name().toLowerCase() + "_per_tick", () -> getActionCount(action), () -> tickCount);
+        Metrics.gauge("marker_coverage", () -> scene.getWorld().getMarkerCoverage());
+        Metrics.gauge("same_type_ratio", () -> scene.getWorld().getSortingQuality().getRatio());
+        for (Object.Type type : Object.Type.values())
+            Metrics.gauge("same_type_ratio_" + type.name().toLowerCase(), () -> scene.getWorld().getSortingQuality().getRatio(type));
+        //The allocated bytes are only exposed by HotSpot based JVMs, summed over the live threads
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemoryEnabled())
+            Metrics.rate("allocated_kb_per_sec", () -> {
+                long total = 0;
+                for (long bytes : hotspot.getThreadAllocatedBytes(hotspot.getAllThreadIds()))
+                    total += Math.max(bytes, 0);
+                return total >> 10;
+            });
+    }
+
+    /**
+     * Return the number of actions of a kind applied by all the Agents since the start of the simulation
+     * @param action the kind of action
+     * @return the number of actions applied
+     */
+    public long getActionCount(Agent.Action action) {
+        long count = retiredActions[action.ordinal()];
+        for (Agent agent : agents)
+            count += agent.getActionCount(action);
+        return count;
+    }
+
+    /**
+     * Open or close the metrics file following the settings, and sample the metrics if due
+     */
+    private void sampleMetrics() {
+        if (!followSettings || (!SettingsInterface.METRICS && !metricsOpen))
+            return;
+        if (SettingsInterface.METRICS != metricsOpen) {
+            metricsOpen = SettingsInterface.METRICS;
+            if (metricsOpen)
+                Metrics.open(new CsvMetricsSink(Path.of("metrics"), "metrics", METRICS_FILE_SIZE, METRICS_FILES));
+            else
+                Metrics.close();
+        }
+        Metrics.sample(SettingsInterface.METRICS_INTERVAL);
+    }
+
+    /**
+     * Write the pending metrics and close the metrics file, it is reopened by the next update if still enabled
+     */
+    public void closeMetrics() {
+        if (!followSettings)
+            return;
+        synchronized (lock) {
+            metricsOpen = false;
+            Metrics.close();
+        }
+    }
+
+    /**
+     * Generate a random scene (Agents, objects and World)
      */
     private void generateScene() {
-        World world = new World(SettingsInterface.WORLD_SIZE, worldMesh);
+        refreshConfig();
+        //A seed of 0 picks a new one on every generation
+        seed = config.seed() != 0 ? config.seed() : randomSeed();
+        rand = new SplittableRandom(seed);
+        World world = new World(config.worldSize(), worldMesh, config);
         scene.setWorld(world);
 
-        generateAgents(agentMesh, SettingsInterface.AGENT_COUNT);
-        generateObjects(aMesh, SettingsInterface.A_COUNT, Object.Type.A);
-        generateObjects(bMesh, SettingsInterface.B_COUNT, Object.Type.B);
-        generateObjects(cMesh, SettingsInterface.C_COUNT, Object.Type.C);
+        generateAgents(config.agentCount());
+        generateObjects(aMesh, config.aCount(), Object.Type.A);
+        generateObjects(bMesh, config.bCount(), Object.Type.B);
+        generateObjects(cMesh, config.cCount(), Object.Type.C);
+
+        //The 2D Map buffers are only allocated when first requested
+        worldBuffers = null;
+        world.publishSnapshot();
+    }
 
-        worldBuffers = new ByteBuffer[]{
-                BufferUtils.createByteBuffer(SettingsInterface.WORLD_SIZE * SettingsInterface.WORLD_SIZE * 4),
-                BufferUtils.createByteBuffer(SettingsInterface.WORLD_SIZE * SettingsInterface.WORLD_SIZE * 4),
-                BufferUtils.createByteBuffer(SettingsInterface.WORLD_SIZE * SettingsInterface.WORLD_SIZE * 4)
+    /**
+     * Draw a new seed, an int other than 0 so it can be set back as the SEED setting to reproduce the scene
+     * @return a random seed
+     */
+    private static int randomSeed() {
+        SplittableRandom random = new SplittableRandom();
+        int seed;
+        do {
+            seed = random.nextInt();
+        } while (seed == 0);
+        return seed;
+    }
+
+    /**
+     * Generate the scene saved in a World snapshot
+     * the random streams of the Agents aren't saved, the Agents get new ones split from a seed chosen like for a generated scene,
+     * so the scene doesn't continue like the run it was saved from, but setting SEED to the printed seed reproduces the resumed run
+     * @param file the opened snapshot
+     * @throws IOException thrown when the snapshot is corrupted
+     */
+    private void generateScene(WorldFile file) throws IOException {
+        refreshConfig();
+        //A seed of 0 picks a new one on every load
+        seed = config.seed() != 0 ? config.seed() : randomSeed();
+        rand = new SplittableRandom(seed);
+        World world = new World(file.getSize(), worldMesh, config);
+        scene.setWorld(world);
+
+        file.load(world, this::createAgent, this::createObject);
+
+        worldBuffers = null;
+        world.publishSnapshot();
+    }
+
+    /**
+     * Take the current values of the SettingsInterface if the Simulation follows them and they changed
+     * must be called between two updates
+     */
+    private void refreshConfig() {
+        if (!followSettings || config.matchesSettings())
+            return;
+        config = SimulationConfig.fromSettings();
+        if (scene.getWorld() != null)
+            scene.getWorld().setConfig(config);
+    }
+
+    /**
+     * Create a new Agent, not placed in the World yet
+     * @return the created Agent
+     */
+    private Agent createAgent() {
+        Agent a = new Agent(scene.getWorld(), agentMesh, rand.split());
+        agents.add(a);
+        if (!headless)
+            scene.registerItem(a);
+        return a;
+    }
+
+    /**
+     * Create a new Object, not placed in the World yet
+     * @param type the type of the Object
+     * @return the created Object
+     */
+    private Object createObject(Object.Type type) {
+        Mesh mesh = switch (type) {
+            case A -> aMesh;
+            case B -> bMesh;
+            case C -> cMesh;
         };
+        Object o = new Object(mesh, type);
+        if (!headless)
+            scene.registerItem(o);
+        return o;
     }
 
     /**
      * Generate a set number of agents, less will be generated if not enough space
-     * @param mesh the mesh used by the agents for rendering
      * @param count the target number of Agent to generate
      */
-    private void generateAgents(Mesh mesh, int count) {
-        Random rand = new Random();
+    private void generateAgents(int count) {
         for (int i = 0; i < count; i++) {
-            Agent a = new Agent(scene.getWorld(), mesh);
             int x, z, attempts = 0;
             //Try to place the agent, give up after 10 unsuccessful attempts
             do {
                 attempts++;
                 x = rand.nextInt(scene.getWorld().getSize());
                 z = rand.nextInt(scene.getWorld().getSize());
-            } while (attempts <= 10 && !scene.getWorld().canMove(a, new Vector2i(x, z)));
+            } while (attempts <= 10 && scene.getWorld().hasAgent(new Vector2i(x, z)));
             if (attempts >= 10)
                 continue;
 
-            //Set the rendering position
-            a.setPosition(x+.5f, 1, z+.5f);
+            //Only create the agent once a spot is found, to keep ids dense
+            Agent a = createAgent();
 
-            //Add it to the world and register it to the renderer
-            agents.add(a);
+            //Set the rendering position and add it to the world
+            a.setPosition(x+.5f, 1, z+.5f);
             scene.getWorld().put(a, new Vector2i(x, z));
-            scene.registerItem(a);
         }
     }
 
@@ -104,7 +320,6 @@ public class Simulation extends ConcreteLogic {
      * @param type the type of Object to generate
      */
     private void generateObjects(Mesh mesh, int count, Object.Type type) {
-        Random rand = new Random();
         for (int i = 0; i < count; i++) {
             Object o = new Object(mesh, type);
             int x, z, attempts = 0;
@@ -122,26 +337,105 @@ public class Simulation extends ConcreteLogic {
 
             //Add it to the world and register it to the renderer
             scene.getWorld().put(o, new Vector2i(x, z));
-            scene.registerItem(o);
+            if (!headless)
+                scene.registerItem(o);
         }
     }
 
     /**
-     * Update the simulation, called once every (1/TARGET_UPS sec, see settings package)
-     * @param window the Window where the simulation is rendered
-     * @param elapsedTime time elapsed since last update in seconds
+     * Start updating the simulation on its own thread
      */
     @Override
-    public void update(Window window, double elapsedTime) {
-        //If the simulation is running, update all objects
-        if (!paused) {
-            //Update the world (for help marker attenuation) and stop previous animations
-            scene.getWorld().update();
+    public void start() {
+        updater = new SimulationThread(this);
+        updater.start();
+    }
 
-            //Update all the Agents
+    /**
+     * Return the number of updates per second achieved by the simulation thread
+     * @return the number of updates per second
+     */
+    @Override
+    public int getUpdateRate() {
+        return updater == null ? 0 : updater.getUpdateRate();
+    }
+
+    /**
+     * Run an update if the simulation is running and publish the new state for rendering
+     * called by the simulation thread once every (1/TARGET_UPS sec, see settings package)
+     * @param elapsedTime time elapsed since last update in seconds
+     * @param publish should the new state be published for rendering
+     * @return has an update been run
+     */
+    public boolean step(double elapsedTime, boolean publish) {
+        synchronized (lock) {
+            if (paused)
+                return false;
+            tick(elapsedTime);
+            if (publish)
+                scene.getWorld().publishSnapshot();
+            return true;
+        }
+    }
+
+    /**
+     * Run a single update of the World and all the Agents
+     * doesn't require a Window, used by the headless runner
+     * @param elapsedTime time elapsed since last update in seconds
+     */
+    public void tick(double elapsedTime) {
+        refreshConfig();
+        if (replayer != null) {
+            replayTick();
+            return;
+        }
+        //Update the world (for help marker attenuation) and stop previous animations
+        //The profiler sections are shared by the JVM and written by a single thread, only the Simulation following the settings is profiled
+        long start = WORLD_UPDATE.start();
+        scene.getWorld().update();
+        if (followSettings)
+            WORLD_UPDATE.stop(start);
+
+        start = AGENTS_UPDATE.start();
+        //Update all the Agents
+        WorldTiles tiles = scene.getWorld().getTiles();
+        if (tiles != null) {
+            //Every tile decides and commits its own Agents concurrently, Agents near a border are committed last
+            tiles.update(agents, elapsedTime);
+        } else if (config.parallelUpdate()) {
+            //Every Agent decides concurrently against the unchanged World,
+            //then the plans are applied in id order, so the lowest id wins a contested Chunk
+            agents.parallelStream().forEach(Agent::decide);
+            for (Agent agent : agents)
+                agent.commit(elapsedTime);
+        } else {
             for (Agent agent : agents)
                 agent.update(elapsedTime);
         }
+        if (followSettings)
+            AGENTS_UPDATE.stop(start);
+        tickCount++;
+        sampleMetrics();
+    }
+
+    /**
+     * Replay a single recorded update, nothing is done once the end of the recording is reached
+     */
+    private void replayTick() {
+        if (replayer.hasEnded())
+            return;
+        long start = REPLAY.start();
+        try {
+            replayer.step();
+        } catch (IOException e) {
+            e.printStackTrace();
+            replayer.close();
+            replayer = null;
+        }
+        if (followSettings)
+            REPLAY.stop(start);
+        tickCount++;
+        sampleMetrics();
     }
 
     /**
@@ -153,10 +447,19 @@ public class Simulation extends ConcreteLogic {
      */
     @Override
     public void render(Window window) {
-        //If the simulation is running, compute animation
-        if (!paused)
-            scene.getWorld().animate(SettingsInterface.ANIMATION ? animationPercent : 1);
-        scene.getWorld().renderMarkers();
+        //Render the last state published by the simulation thread
+        World world = scene.getWorld();
+        long snapshotTime = world.acquireSnapshot();
+        //If the simulation is running, compute animation from the time elapsed since the snapshot
+        long start = ANIMATE.start();
+        if (!paused) {
+            double percent = Math.min((System.nanoTime() - snapshotTime) / 1_000_000_000.0 * SettingsInterface.TARGET_UPS, 1.0);
+            world.animate(SettingsInterface.ANIMATION ? percent : 1);
+        }
+        ANIMATE.stop(start);
+        start = RENDER_MARKERS.start();
+        world.renderMarkers();
+        RENDER_MARKERS.stop(start);
         //Update the material colors
         aMesh.getMaterial().setAmbientColour(SettingsInterface.A_COLOR);
         bMesh.getMaterial().setAmbientColour(SettingsInterface.B_COLOR);
@@ -186,18 +489,148 @@ public class Simulation extends ConcreteLogic {
      */
     @Override
     public void reset() {
+        synchronized (lock) {
+            clearScene();
+            generateScene();
+        }
+    }
+
+    /**
+     * Replace the scene with the one saved in a World snapshot
+     * if the snapshot is corrupted, a random scene is generated instead
+     * @param path the path of the snapshot
+     * @throws IOException thrown when the snapshot can't be read
+     */
+    public void load(Path path) throws IOException {
+        WorldFile file = WorldFile.open(path);
+        synchronized (lock) {
+            clearScene();
+            try {
+                generateScene(file);
+            } catch (IOException e) {
+                clearScene();
+                generateScene();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Save the current scene to a World snapshot
+     * @param path the path of the snapshot
+     * @throws IOException thrown when the snapshot can't be written
+     */
+    public void save(Path path) throws IOException {
+        synchronized (lock) {
+            WorldFile.save(path, scene.getWorld(), agents, seed);
+        }
+    }
+
+    /**
+     * Start recording every change made to the World, from a snapshot of the current scene
+     * @param snapshot the path of the snapshot of the current scene
+     * @param log the path of the log of the changes
+     * @throws IOException thrown when the files can't be written
+     */
+    public void startRecording(Path snapshot, Path log) throws IOException {
+        synchronized (lock) {
+            stopRecording();
+            WorldFile.save(snapshot, scene.getWorld(), agents, seed);
+            actionLog = new ActionLog(log);
+            scene.getWorld().setActionLog(actionLog);
+        }
+    }
+
+    /**
+     * Stop recording the changes made to the World and write the pending ones
+     */
+    public void stopRecording() {
+        synchronized (lock) {
+            if (actionLog == null)
+                return;
+            scene.getWorld().setActionLog(null);
+            actionLog.close();
+            actionLog = null;
+        }
+    }
+
+    /**
+     * Return whether the changes made to the World are being recorded
+     * @return is a recording running
+     */
+    public boolean isRecording() {
+        return actionLog != null;
+    }
+
+    /**
+     * Replace the scene with a recording, the following updates apply the recorded changes instead of running the Agents
+     * @param snapshot the path of the snapshot taken at the start of the recording
+     * @param log the path of the log of the changes
+     * @throws IOException thrown when the files can't be read
+     */
+    public void replay(Path snapshot, Path log) throws IOException {
+        load(snapshot);
+        synchronized (lock) {
+            replayer = new ActionReplayer(log, scene.getWorld());
+            replaySnapshot = snapshot;
+            replayLog = log;
+        }
+    }
+
+    /**
+     * Rebuild the replayed recording as it was at a given update
+     * the recording is replayed from its start when the update is already passed
+     * @param tick the update number to reach
+     * @return the update number reached, lower than the requested one if the recording ends before
+     * @throws IOException thrown when the recording can't be read
+     */
+    public int seekReplay(int tick) throws IOException {
+        synchronized (lock) {
+            if (replayer == null)
+                throw new IllegalStateException("No recording is replayed");
+            if (tick < scene.getWorld().getTick())
+                replay(replaySnapshot, replayLog);
+            replayer.seek(tick);
+            scene.getWorld().publishSnapshot();
+            return scene.getWorld().getTick();
+        }
+    }
+
+    /**
+     * Return whether the updates replay a recording
+     * @return is a recording replayed
+     */
+    public boolean isReplaying() {
+        return replayer != null;
+    }
+
+    /**
+     * Remove every Agent and Object of the scene
+     */
+    private void clearScene() {
+        //A recording or replay only applies to the scene it started with
+        stopRecording();
+        if (replayer != null) {
+            replayer.close();
+            replayer = null;
+        }
+        //Keep the actions of the removed Agents so the action counters never decrease
+        for (Agent.Action action : Agent.Action.VALUES)
+            retiredActions[action.ordinal()] = getActionCount(action);
         scene.reset();
         agents.clear();
-        generateScene();
     }
 
     /**
-     * Set the current animation percentage
-     * @param percent the current animation percentage
+     * Stop the simulation thread and clear the memory used by the scene
      */
     @Override
-    public void setPercent(double percent) {
-        this.animationPercent = percent;
+    public void cleanup() {
+        if (updater != null)
+            updater.stop();
+        closeMetrics();
+        stopRecording();
+        super.cleanup();
     }
 
     /**
@@ -206,7 +639,55 @@ public class Simulation extends ConcreteLogic {
      * @return an array of flipped ByteBuffer containing the rendered World [Objects, Agents, Help Markers]
      */
     public ByteBuffer[] getWorldBuffers() {
+        if (worldBuffers == null) {
+            int size = scene.getWorld().getSize();
+            worldBuffers = new ByteBuffer[]{
+                    BufferUtils.createByteBuffer(size * size * 4),
+                    BufferUtils.createByteBuffer(size * size * 4),
+                    BufferUtils.createByteBuffer(size * size * 4)
+            };
+        }
         scene.getWorld().fillBuffers(worldBuffers[0], worldBuffers[1], worldBuffers[2]);
         return worldBuffers;
     }
+
+    /**
+     * Return the parameters of the Simulation
+     * @return the parameters used by the current update
+     */
+    public SimulationConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Return the number of updates run since the start of the simulation
+     * @return the number of updates
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Return the seed the current scene was generated from
+     * @return the seed of the scene
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Return the World of the simulation
+     * @return the current World
+     */
+    public World getWorld() {
+        return scene.getWorld();
+    }
+
+    /**
+     * Return the Agents living in the simulation
+     * @return the list of Agents
+     */
+    public List<Agent> getAgents() {
+        return agents;
+    }
 }
@@ -0,0 +1,108 @@
+package simulation;
+
+import settings.SettingsInterface;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class runs the updates of a Simulation on their own thread, at TARGET_UPS or as fast as possible in turbo mode
+ * the render thread only consumes the snapshots published after the updates
+ */
+public class SimulationThread implements Runnable {
+
+    //Longest delay the thread tries to catch up on, older updates are dropped
+    private static final double MAX_CATCH_UP = 0.25;
+
+    private final Simulation simulation;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile int updateRate;
+
+    /**
+     * Create a new SimulationThread
+     * @param simulation the Simulation to update
+     */
+    public SimulationThread(Simulation simulation) {
+        this.simulation = simulation;
+        this.thread = new Thread(this, "Simulation");
+        this.thread.setDaemon(true);
+        this.updateRate = SettingsInterface.TARGET_UPS;
+    }
+
+    /**
+     * Start updating the Simulation
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stop updating the Simulation and wait for the current update to end
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return the number of updates per second achieved over the last second
+     * @return the number of updates per second
+     */
+    public int getUpdateRate() {
+        return updateRate;
+    }
+
+    /**
+     * The update loop, updates are chained to respect TARGET_UPS and the thread sleeps in between,
+     * unless in turbo mode
+     */
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        long rateStart = last;
+        long lastSample = last;
+        int nbUpdate = 0;
+        double accumulator = 0;
+        while (running) {
+            //Calculate an update duration and get the elapsed time since last loop
+            double interval = 1.0 / SettingsInterface.TARGET_UPS;
+            long now = System.nanoTime();
+            accumulator = Math.min(accumulator + (now - last) / 1_000_000_000.0, Math.max(MAX_CATCH_UP, interval));
+            last = now;
+
+            if (now - rateStart >= 1_000_000_000L) {
+                updateRate = (int) (nbUpdate * 1_000_000_000L / (now - rateStart));
+                nbUpdate = 0;
+                rateStart = now;
+            }
+
+            //In turbo mode updates are chained without waiting, and the World is only sampled TURBO_SAMPLE_RATE times per second
+            if (SettingsInterface.TURBO) {
+                accumulator = 0;
+                boolean sample = now - lastSample >= 1_000_000_000L / Math.max(SettingsInterface.TURBO_SAMPLE_RATE, 1);
+                if (simulation.step(interval, sample)) {
+                    nbUpdate++;
+                    if (sample)
+                        lastSample = now;
+                } else {
+                    LockSupport.parkNanos((long) (interval * 1_000_000_000L));
+                }
+                continue;
+            }
+
+            if (accumulator < interval) {
+                LockSupport.parkNanos((long) ((interval - accumulator) * 1_000_000_000L));
+                continue;
+            }
+            if (simulation.step(interval, true))
+                nbUpdate++;
+            accumulator -= interval;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package simulation;
+
+import settings.SimulationConfig;
+import simulation.objects.Agent;
+import simulation.objects.Object;
+import simulation.objects.SortingQuality;
+import simulation.objects.World;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs every combination of a parameter sweep as headless Simulations, concurrently on a work-stealing pool
+ * a sweep file uses the keys of the config files, each value being a single value, a list (5,10,20) or a range start:end:step,
+ * REPEAT sets the number of runs of every combination (with a fixed SEED, the repetitions use the following seeds)
+ * the parameters missing from the sweep file are taken from the base parameters
+ */
+public class SweepRunner {
+
+    private static final String REPEAT = "REPEAT";
+
+    private final SimulationConfig base;
+    //Values of every swept parameter, ordered by key so the runs are always numbered the same way
+    private final Map<String, List<String>> values;
+    private final int repeat;
+    private BufferedWriter writer;
+
+    /**
+     * This record represent a single run of the sweep
+     * @param index the number of the run
+     * @param values the swept parameters of the run
+     * @param config the parameters of the run
+     */
+    private record Run(int index, Map<String, String> values, SimulationConfig config) {}
+
+    /**
+     * Create a new SweepRunner from a sweep file
+     * @param file the path of the sweep file
+     * @param base the parameters of the runs that aren't swept
+     * @throws IOException thrown when the file can't be read
+     * @throws IllegalArgumentException thrown when the file holds an unknown parameter or a value that can't be parsed
+     */
+    public SweepRunner(Path file, SimulationConfig base) throws IOException {
+        Properties prop = new Properties();
+        try (FileReader reader = new FileReader(file.toFile())) {
+            prop.load(reader);
+        }
+        this.base = base;
+        this.values = new TreeMap<>();
+        int repeat = 1;
+        for (String key : prop.stringPropertyNames()) {
+            if (key.equals(REPEAT))
+                repeat = Math.max(Integer.parseInt(prop.getProperty(key).trim()), 1);
+            else
+                values.put(key, expand(key, prop.getProperty(key)));
+        }
+        this.repeat = repeat;
+    }
+
+    /**
+     * Expand the value of a swept parameter
+     * ranges are computed in decimal, so 0.1:0.3:0.1 gives exactly 0.1, 0.2 and 0.3
+     * @param key the key of the parameter
+     * @param value the single value, list or range
+     * @return the values taken by the parameter
+     */
+    private static List<String> expand(String key, String value) {
+        List<String> list = new ArrayList<>();
+        if (value.contains(":")) {
+            String[] bounds = value.split(":");
+            if (bounds.length != 3)
+                throw new IllegalArgumentException("The range of " + key + " must be start:end:step");
+            BigDecimal start = new BigDecimal(bounds[0].trim());
+            BigDecimal end = new BigDecimal(bounds[1].trim());
+            BigDecimal step = new BigDecimal(bounds[2].trim());
+            if (step.signum() <= 0)
+                throw new IllegalArgumentException("The step of " + key + " must be positive");
+            for (BigDecimal v = start; v.compareTo(end) <= 0; v = v.add(step))
+                list.add(v.toPlainString());
+        } else {
+            for (String v : value.split(","))
+                if (!v.isBlank())
+                    list.add(v.trim());
+        }
+        if (list.isEmpty())
+            throw new IllegalArgumentException("No value for " + key);
+        return list;
+    }
+
+    /**
+     * Build the parameters of every run of the sweep
+     * the runs update their Agents sequentially unless the sweep sets PARALLEL_UPDATE or TILE_SIZE, the pool already uses every core
+     * @return the runs, in sweep order
+     */
+    private List<Run> expandRuns() {
+        List<Run> runs = new ArrayList<>();
+        List<String> keys = new ArrayList<>(values.keySet());
+        int[] choice = new int[keys.size()];
+        while (true) {
+            Map<String, String> combination = new LinkedHashMap<>();
+            SimulationConfig config = base.set("PARALLEL_UPDATE", "false").set("TILE_SIZE", "0");
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(keys.get(i)).get(choice[i]);
+                combination.put(keys.get(i), value);
+                config = config.set(keys.get(i), value);
+            }
+            for (int r = 0; r < repeat; r++) {
+                //A seed of 0 picks a new one for every run
+                SimulationConfig run = config.seed() != 0 ? config.set("SEED", String.valueOf(config.seed() + r)) : config;
+                runs.add(new Run(runs.size(), combination, run));
+            }
+
+            //Advance to the next combination, the last key changing fastest
+            int i = keys.size() - 1;
+            while (i >= 0 && ++choice[i] == values.get(keys.get(i)).size())
+                choice[i--] = 0;
+            if (i < 0)
+                return runs;
+        }
+    }
+
+    /**
+     * Return the number of runs of the sweep
+     * @return the number of combinations times the number of repetitions
+     */
+    public int getRunCount() {
+        int count = repeat;
+        for (List<String> list : values.values())
+            count *= list.size();
+        return count;
+    }
+
+    /**
+     * Run every combination of the sweep and write a line of results per run to a CSV file, replacing it if it exists
+     * the lines are written as the runs end, so the results of a sweep stopped midway are kept
+     * @param ticks the number of updates of each run
+     * @param out the path of the results file
+     * @param threads the number of runs executed concurrently
+     * @return the number of runs that failed
+     * @throws IOException thrown when the results file can't be written
+     */
+    public int run(int ticks, Path out, int threads) throws IOException {
+        List<Run> runs = expandRuns();
+        int failed = 0;
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try (BufferedWriter writer = Files.newBufferedWriter(out)) {
+            this.writer = writer;
+            write(header());
+            List<Future<?>> futures = new ArrayList<>(runs.size());
+            for (Run run : runs)
+                futures.add(pool.submit(() -> execute(run, ticks, runs.size())));
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    failed++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            this.writer = null;
+        }
+        return failed;
+    }
+
+    /**
+     * Execute a single run and write its results
+     * @param run the run to execute
+     * @param ticks the number of updates to run
+     * @param total the number of runs of the sweep, for the progress
+     */
+    private void execute(Run run, int ticks, int total) {
+        HeadlessRunner runner = new HeadlessRunner(run.config());
+        long start = System.nanoTime();
+        runner.run(ticks);
+        long runtime = System.nanoTime() - start;
+        write(results(run, runner.getSimulation(), runtime));
+        System.out.println("Run " + (run.index() + 1) + "/" + total + " " + run.values() + " in " + runtime / 1_000_000 + " ms");
+    }
+
+    /**
+     * Return the header of the results file
+     * @return the column names
+     */
+    private String header() {
+        StringBuilder line = new StringBuilder("run");
+        for (String key : values.keySet())
+            line.append(',').append(key);
+        line.append(",seed,ticks,runtime_ms,ticks_per_sec,same_type_ratio");
+        for (Object.Type type : Object.Type.values())
+            line.append(",same_type_ratio_").append(type.name().toLowerCase());
+        line.append(",marker_coverage");
+        for (Agent.Action action : Agent.Action.VALUES)
+            line.append(',').append(action.name().toLowerCase()).append("_per_tick");
+        return line.toString();
+    }
+
+    /**
+     * Return the line of results of an ended run
+     * @param run the run
+     * @param simulation the Simulation of the run
+     * @param runtime the time taken by the updates in nanoseconds
+     * @return the line of results
+     */
+    private static String results(Run run, Simulation simulation, long runtime) {
+        World world = simulation.getWorld();
+        SortingQuality quality = world.getSortingQuality();
+        long ticks = simulation.getTickCount();
+        StringBuilder line = new StringBuilder().append(run.index());
+        for (String value : run.values().values())
+            line.append(',').append(value);
+        line.append(',').append(simulation.getSeed())
+                .append(',').append(ticks)
+                .append(',').append(runtime / 1_000_000)
+                .append(',').append(ticks * 1_000_000_000.0 / runtime)
+                .append(',').append(quality.getRatio());
+        for (Object.Type type : Object.Type.values())
+            line.append(',').append(quality.getRatio(type));
+        line.append(',').append(world.getMarkerCoverage());
+        for (Agent.Action action : Agent.Action.VALUES)
+            line.append(',').append((double) simulation.getActionCount(action) / ticks);
+        return line.toString();
+    }
+
+    /**
+     * Append a line to the results file, called by every run as it ends
+     * @param line the line to write
+     */
+    private synchronized void write(String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
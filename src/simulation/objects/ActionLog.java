@@ -0,0 +1,172 @@
+package simulation.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class represent a recorder of the changes made to a World, written to a binary log by a background thread
+ * the log starts with a header (magic, version) followed by fixed-width records (little endian) :
+ * update number, event, radius of the marker, Agent id, argument (cell index, other Agent id or attenuation bits)
+ * records are appended in the order the changes are applied, so replaying them in order rebuilds the World
+ */
+public class ActionLog {
+
+    static final int MAGIC = 0x534D414C;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int RECORD_SIZE = 16;
+
+    //Events, an Agent moved to a cell, picked up or put down the Object of a cell, put or removed its marker centered on a cell
+    static final byte MOVE = 1;
+    static final byte PICK_UP = 2;
+    static final byte PUT_DOWN = 3;
+    static final byte PUT_MARKER = 4;
+    static final byte REMOVE_MARKER = 5;
+    //An Agent started or stopped helping another one, the argument is the helping Agent
+    static final byte HELP = 6;
+    static final byte RELEASE = 7;
+    //The marker attenuation changed, the argument holds its bits
+    static final byte ATTENUATION = 8;
+
+    private static final int RECORDS_PER_BUFFER = 4096;
+    //Number of buffers of the log, when the writer thread falls behind the recording Agents wait for a written one
+    private static final int BUFFER_COUNT = 16;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> full;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread writer;
+    private ByteBuffer current;
+    private long recordCount;
+
+    /**
+     * Create a new ActionLog writing to a file, replacing it if it exists
+     * @param path the path of the log
+     * @throws IOException thrown when the file can't be created
+     */
+    public ActionLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        //Every buffer is either being filled, waiting to be written or free, the end marker takes the last slot
+        full = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 1; i < BUFFER_COUNT; i++)
+            free.add(newBuffer());
+        current = newBuffer();
+        current.putInt(MAGIC);
+        current.putInt(VERSION);
+        writer = new Thread(this::run, "Action log writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Append a record, the full buffers are handed to the writer thread
+     * Agents of different tiles record concurrently, but always about different cells
+     * a record only takes a few puts, so the lock is held for far less time than the commit that makes the change
+     * @param tick the update number
+     * @param event the kind of change
+     * @param radius the radius of the marker, 0 for other events
+     * @param agent the id of the Agent making the change, -1 if none
+     * @param argument the cell index, Agent id or attenuation bits, depending on the event
+     */
+    synchronized void record(int tick, byte event, int radius, int agent, int argument) {
+        if (current.remaining() < RECORD_SIZE) {
+            full.add(current.flip());
+            current = takeFree();
+        }
+        current.putInt(tick);
+        current.put(event);
+        current.put((byte) 0);
+        current.putShort((short) radius);
+        current.putInt(agent);
+        current.putInt(argument);
+        recordCount++;
+    }
+
+    /**
+     * Wait for a written buffer, the records are never dropped
+     * @return an empty buffer
+     */
+    private ByteBuffer takeFree() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return free.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return the number of records appended since the creation of the log
+     * @return the number of records
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Write the pending records, then stop the writer thread and close the file
+     */
+    public void close() {
+        synchronized (this) {
+            full.add(current.flip());
+            full.add(END);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the full buffers until the log is closed, the written buffers are reused
+     * if the file can't be written anymore, the buffers are still recycled so the recording Agents never wait forever
+     */
+    private void run() {
+        boolean failed = false;
+        try (channel) {
+            while (true) {
+                ByteBuffer buffer = full.take();
+                if (buffer == END)
+                    break;
+                if (!failed) {
+                    try {
+                        while (buffer.hasRemaining())
+                            channel.write(buffer);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        failed = true;
+                    }
+                }
+                free.add(buffer.clear());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Allocate a record buffer
+     * @return a new empty buffer
+     */
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,167 @@
+package simulation.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represent a replayer of an ActionLog, applying the recorded changes to a World update by update
+ * the World must be restored from the snapshot taken when the recording started, no Agent decides anything
+ */
+public class ActionReplayer {
+
+    private static final int RECORDS_PER_READ = 4096;
+
+    private final World world;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean ended;
+
+    /**
+     * Create a new ActionReplayer reading a log
+     * @param path the path of the log
+     * @param world the World restored from the snapshot of the start of the recording
+     * @throws IOException thrown when the file can't be read or isn't an action log
+     */
+    public ActionReplayer(Path path, World world) throws IOException {
+        this.world = world;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(RECORDS_PER_READ * ActionLog.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+        if (!fill(ActionLog.HEADER_SIZE) || buffer.getInt() != ActionLog.MAGIC) {
+            channel.close();
+            throw new IOException("Not an action log");
+        }
+        int version = buffer.getInt();
+        if (version != ActionLog.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported action log version " + version);
+        }
+        ended = false;
+    }
+
+    /**
+     * Replay the next update, the changes of the update preceding it that were recorded after the Agents are applied first
+     * @return is there anything left to replay
+     * @throws IOException thrown when the log can't be read
+     */
+    public boolean step() throws IOException {
+        applyUntil(world.tick);
+        world.advance();
+        applyUntil(world.tick);
+        return !ended;
+    }
+
+    /**
+     * Replay updates until a given update number is reached or the log ends
+     * @param tick the update number to reach
+     * @return the number of updates replayed
+     * @throws IOException thrown when the log can't be read
+     */
+    public int seek(int tick) throws IOException {
+        int replayed = 0;
+        while (world.tick < tick && !ended) {
+            step();
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * Return whether every record of the log has been replayed
+     * @return has the end of the log been reached
+     */
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * Close the log
+     */
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Apply the records up to a given update number
+     * @param tick the last update number to apply
+     * @throws IOException thrown when the log can't be read
+     */
+    private void applyUntil(int tick) throws IOException {
+        while (fill(ActionLog.RECORD_SIZE)) {
+            if (buffer.getInt(buffer.position()) > tick)
+                return;
+            buffer.getInt();
+            byte event = buffer.get();
+            buffer.get();
+            int radius = buffer.getShort();
+            int agent = buffer.getInt();
+            int argument = buffer.getInt();
+            apply(event, radius, agent, argument);
+        }
+        ended = true;
+    }
+
+    /**
+     * Apply a record to the World
+     * @param event the kind of change
+     * @param radius the radius of the marker
+     * @param id the id of the Agent making the change
+     * @param argument the cell index, Agent id or attenuation bits, depending on the event
+     * @throws IOException thrown when the record is unknown
+     */
+    private void apply(byte event, int radius, int id, int argument) throws IOException {
+        Agent agent = id >= 0 ? world.agentTable[id] : null;
+        switch (event) {
+            case ActionLog.MOVE -> {
+                int from = world.positions[id];
+                if (from >= 0 && world.agents[from] == id)
+                    world.agents[from] = -1;
+                world.positions[id] = argument;
+                world.agents[argument] = id;
+                world.updateVisual(agent);
+            }
+            case ActionLog.PICK_UP -> {
+                agent.setCarriedObject(world.objects[argument]);
+                world.setObject(argument, null);
+            }
+            case ActionLog.PUT_DOWN -> {
+                world.setObject(argument, agent.getCarriedObject());
+                agent.setCarriedObject(null);
+            }
+            case ActionLog.PUT_MARKER, ActionLog.REMOVE_MARKER -> {
+                world.useMarkerRadius(radius);
+                world.spreadMarker(argument, event == ActionLog.PUT_MARKER);
+            }
+            case ActionLog.HELP -> agent.setSlave(world.agentTable[argument]);
+            case ActionLog.RELEASE -> agent.setSlave(null);
+            case ActionLog.ATTENUATION -> world.changeAttenuation(Float.intBitsToFloat(argument));
+            default -> throw new IOException("Unknown action log event " + event);
+        }
+    }
+
+    /**
+     * Make sure the buffer holds a number of bytes, reading more of the log if needed
+     * @param bytes the number of bytes needed
+     * @return false if the log ends before
+     * @throws IOException thrown when the log can't be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) <= 0)
+                break;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -2,22 +2,55 @@ package simulation.objects;
 
 import engine.objects.RenderableItem;
 import engine.rendering.Mesh;
-import settings.SettingsInterface;
+import settings.SimulationConfig;
 
-import java.util.Map;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Thisb class represent an Agent that can interact with the World
  */
 public class Agent extends RenderableItem {
 
-    private static final Random rand = new Random();
-
     private final World world;
+    private final int id;
+    //Random stream of the Agent, split from the Simulation's seeded stream so concurrent updates never share it
+    private final SplittableRandom rand;
+    //Parameters of the Simulation, replaced by the World between two updates
+    private SimulationConfig config;
 
     private Object carriedObject;
-    private String memory;
+
+    //Memory stored as a ring buffer of Object type codes (0 for nothing), with the count of each code
+    private byte[] memory;
+    private int memoryHead;
+    private final int[] memoryCounts;
+
+    //Reused on every update so the perceive/act/update cycle doesn't allocate
+    private final Perception perception;
+    private final Direction[] markerDirections;
+    private final float[] markerValues;
+
+    //Plan of the current update, filled by decide() and applied by commit()
+    private static final int PLAN_PICK_UP = 1;
+    private static final int PLAN_PUT_DOWN = 1 << 1;
+    private static final int PLAN_PUT_MARKER = 1 << 2;
+    private static final int PLAN_GIVE_UP = 1 << 3;
+    private static final int PLAN_HELP = 1 << 4;
+    private static final int PLAN_MOVE = 1 << 5;
+    private static final int PLAN_MOVE_WITH_SLAVE = 1 << 6;
+
+    private boolean planned;
+    private int plan;
+    private Direction planDirection;
+    private int planDistance;
+    private Agent planHelped;
+    private Agent planSlave;
+
+    //Number of actions applied since the creation of the Agent, indexed by Action ordinal
+    private final long[] actionCounts;
 
     //Part 2
     private float markerCooldown = 0;
@@ -26,16 +59,25 @@ public class Agent extends RenderableItem {
     private Agent master;
 
     /**
-     * Create a new Agent
+     * Create a new Agent and register it to the World
      * @param world the World where the Agent lives in
      * @param mesh the Mesh used by the Agent
+     * @param rand the random stream used by the Agent, not shared with any other Agent
      */
-    public Agent(World world, Mesh mesh) {
+    public Agent(World world, Mesh mesh, SplittableRandom rand) {
         super(mesh);
         this.world = world;
-        this.memory = "";
-        for (int i = 0; i < SettingsInterface.MEMORY_SIZE; i++)
-            this.memory += "0";
+        this.rand = rand;
+        this.config = world.getConfig();
+        this.id = world.register(this);
+        this.memory = new byte[config.memorySize()];
+        this.memoryHead = 0;
+        this.memoryCounts = new int[Object.Type.values().length + 1];
+        this.memoryCounts[0] = memory.length;
+        this.perception = new Perception();
+        this.markerDirections = new Direction[Direction.VALUES.length];
+        this.markerValues = new float[Direction.VALUES.length];
+        this.actionCounts = new long[Action.VALUES.length];
     }
 
     /**
@@ -43,18 +85,48 @@ public class Agent extends RenderableItem {
      * @param elapsedTime time elapsed since last update
      */
     public void update(double elapsedTime) {
-        //If the Agent isn't a slave to another one
-        if (isNotBusy()) {
-            //Percepts, Act and Update the memory
-            Perception perception = percepts();
-            action(perception);
-            updateMemory(perception);
-
-            //If the Agent carries an Object of type C and doesn't has help, update timers
-            if (!hasHelp()) {
-                markerCooldown -= elapsedTime;
-                giveUpCooldown -= elapsedTime;
-            }
+        decide();
+        commit(elapsedTime);
+    }
+
+    /**
+     * Percepts the World and decide what to do during this update, without modifying the World
+     * the only state written is the Agent's own memory and plan,
+     * so every Agent of a World can decide concurrently
+     */
+    public void decide() {
+        plan = 0;
+        //If the Agent is a slave to another one, it doesn't decide anything
+        planned = isNotBusy();
+        if (!planned)
+            return;
+        planSlave = slave;
+
+        //Percepts, Plan and Update the memory
+        Perception perception = percepts();
+        action(perception);
+        updateMemory(perception);
+    }
+
+    /**
+     * Apply the plan made by decide() to the World
+     * commits must be applied one Agent at a time, an action that is no longer possible
+     * (cell claimed by another Agent, Agent already helped ...) is dropped
+     * @param elapsedTime time elapsed since last update
+     */
+    public void commit(double elapsedTime) {
+        if (!planned)
+            return;
+        planned = false;
+
+        //If the Agent has been helped since it decided, the plan is outdated
+        if (slave == planSlave && isNotBusy())
+            applyPlan();
+
+        //If the Agent carries an Object of type C and doesn't has help, update timers
+        if (!hasHelp()) {
+            markerCooldown -= elapsedTime;
+            giveUpCooldown -= elapsedTime;
         }
     }
 
@@ -87,11 +159,11 @@ public class Agent extends RenderableItem {
      * @return the local Perception of the Agent
      */
     public Perception percepts() {
-        return world.getPerception(this);
+        return world.getPerception(this, perception);
     }
 
     /**
-     * The common behaviour of the Agent
+     * The common behaviour of the Agent, stored as a plan
      * @param p the local Perception of the Agent
      */
     public void action(Perception p) {
@@ -101,29 +173,29 @@ public class Agent extends RenderableItem {
             if (carriedObject == null) {
                 //If the agent can't pick up the Object or doesn't want to, just move
                 if (!pickUp(p))
-                    move(p);
+                    move(p, false);
             } else {
                 //Else if the agent carries an Object of type C
                 if (carriedObject.getType() == Object.Type.C)
                     handleTypeC(p);
                 //Otherwise, juste move
                 else
-                    move(p);
+                    move(p, true);
             }
         } else {
             //If the agent is carrying an object
             if (carriedObject != null) {
                 //If the agent can't or doesn't want to put down the item
-                if (!putDown(false))
+                if (!putDown(p, false))
                     //If the Agent carries an Object of type C
                     if (carriedObject.getType() == Object.Type.C)
                         handleTypeC(p);
                     //Otherwise, just move
                     else
-                        move(p);
+                        move(p, true);
             //If the agent can't pick up the Object or doesn't want to, just move
             } else {
-                move(p);
+                move(p, false);
             }
         }
     }
@@ -142,7 +214,7 @@ public class Agent extends RenderableItem {
             do {
                 //Try to find a Direction where the 2 agent can move
                 dir = Direction.random(rand);
-                dist = rand.nextInt(SettingsInterface.MAX_MOVE_DIST) + 1;
+                dist = rand.nextInt(config.maxMoveDist()) + 1;
                 //Give up after 3 unsuccessfully attempts
                 if (++attempts > 3) {
                     return;
@@ -150,92 +222,110 @@ public class Agent extends RenderableItem {
             } while(!world.canMove(this, dir, dist) || !world.canMove(slave, dir, dist));
 
             //Move the Agent, and it's slave to the selected direction
-            world.move(this, dir, dist);
-            world.move(slave, dir, dist);
+            planMove(PLAN_MOVE_WITH_SLAVE, dir, dist);
         //Otherwise, try asking for help or just give up
         } else {
-            //If it's time to ask for help
-            if (markerCooldown <= 0) {
-                //Put marker on the world and update timer
-                world.putMarker(this);
-                markerCooldown = SettingsInterface.MARKER_COOLDOWN;
-            }
-            //If it's time to give up
-            if (giveUpCooldown <= 0) {
-                //Put down the item and move
-                if (putDown(true)) {
-                    releaseSlave();
-                    world.removeMarker(this);
-                    markerCooldown = 0;
-                    giveUpCooldown = 0;
-                    move(p);
-                }
-            }
+            //If it's time to ask for help, put marker on the world
+            if (markerCooldown <= 0)
+                plan |= PLAN_PUT_MARKER;
+            //If it's time to give up, put down the item and move
+            if (giveUpCooldown <= 0 && putDown(p, true))
+                plan |= PLAN_GIVE_UP;
         }
     }
 
+    /**
+     * Replace the parameters followed by the Agent, the memory is resized on its next update
+     * @param config the new parameters
+     */
+    void setConfig(SimulationConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Return how far from the Agent the current plan can read or write cells
+     * used to know whether the plan can be committed concurrently with Agents of other tiles
+     * @return the reach of the plan in cells, on each axis
+     */
+    public int getPlanReach() {
+        int markerRadius = config.markerRadius();
+        int reach = 0;
+        //Picking up or putting down an Object reads its neighbours to update the sorting quality
+        if ((plan & PLAN_PICK_UP) != 0)
+            reach = Math.max(markerRadius, 1);
+        if ((plan & PLAN_MOVE_WITH_SLAVE) != 0)
+            reach = Math.max(reach, planDistance + 1);
+        if ((plan & PLAN_PUT_MARKER) != 0)
+            reach = Math.max(reach, markerRadius);
+        if ((plan & PLAN_PUT_DOWN) != 0)
+            reach = Math.max(reach, 1);
+        //A give-up removes the markers and decides a new movement (possibly helping a neighbour)
+        if ((plan & PLAN_GIVE_UP) != 0)
+            reach = Math.max(reach, Math.max(markerRadius + 1, config.maxMoveDist()));
+        if ((plan & PLAN_HELP) != 0)
+            reach = Math.max(reach, markerRadius + 1);
+        if ((plan & PLAN_MOVE) != 0)
+            reach = Math.max(reach, planDistance);
+        return reach;
+    }
+
     /**
      * Release an enslaved Agent
      */
     private void releaseSlave() {
         if (slave != null) {
+            world.recordRelease(this, slave);
             slave.master = null;
             slave = null;
         }
     }
 
     /**
-     * Make the Agent put down its Object according to the calculated probability
+     * Decide whether the Agent puts down its Object according to the calculated probability
+     * @param p the local Perception of the Agent
      * @param force force probability to 1
-     * @return has the Agent put down its Object
+     * @return will the Agent put down its Object
      */
-    private boolean putDown(boolean force) {
+    private boolean putDown(Perception p, boolean force) {
         float freq = getFrequency(carriedObject);
-        float prob = freq / (SettingsInterface.K_MINUS + freq);
+        float prob = freq / (config.kMinus() + freq);
         prob *= prob;
-        if (rand.nextFloat() < prob || force) { //If putting it down
-            if (world.putDown(this, carriedObject)) {
-                //If the Agent puts down an Object of type C, release the slave
-                if (carriedObject.getType() == Object.Type.C)
-                    releaseSlave();
-                carriedObject = null;
-                return true;
-            }
+        //If putting it down, only possible if the ground is free
+        if ((rand.nextDouble() < prob || force) && p.object() == null) {
+            plan |= PLAN_PUT_DOWN;
+            return true;
         }
         return false;
     }
 
     /**
-     * Make the Agent pick an Object on the ground according to the calculated probability
+     * Decide whether the Agent picks the Object on the ground according to the calculated probability
      * @param p the local Perception of the Agent
-     * @return has the Agent picked up the Object
+     * @return will the Agent pick up the Object
      */
     private boolean pickUp(Perception p) {
         float freq = getFrequency(p.object());
-        float prob = SettingsInterface.K_PLUS / (SettingsInterface.K_PLUS + freq);
+        float kPlus = config.kPlus();
+        float prob = kPlus / (kPlus + freq);
         prob *= prob;
-        if (rand.nextFloat() < prob) { //If picking it up
-            carriedObject = world.pickUp(this);
-            if (carriedObject.getType() == Object.Type.C) {
-                markerCooldown = SettingsInterface.MARKER_COOLDOWN;
-                world.putMarker(this);
-                giveUpCooldown = SettingsInterface.GIVE_UP_COOLDOWN;
-            }
+        if (rand.nextDouble() < prob) { //If picking it up
+            plan |= PLAN_PICK_UP;
             return true;
         }
         return false;
     }
 
     /**
-     * Move an agent to a random Direction for a random distance
+     * Decide where to move the Agent, a random Direction for a random distance if nothing is more appealing
      * @param p the local Perception of the Agent
+     * @param carrying is the Agent carrying an Object when moving
      */
-    private void move(Perception p) {
+    private void move(Perception p, boolean carrying) {
         //Look for an Agent asking for help in the direct neighbourhood of the Agent (radius 1), if so help him and return
-        if (lookForAgentAskingHelp())
+        if (lookForAgentAskingHelp(carrying))
             return;
         //If there is marker on the ground, move to the adjacent Chunk with the most marker, then return
-        if (p.helpMarker() > 0 && carriedObject == null && tryMoveToMarker())
+        if (p.helpMarker() > 0 && !carrying && tryMoveToMarker())
             return;
 
         //Otherwise, juste generate a Direction and distance and move according to that
@@ -244,28 +334,28 @@ public class Agent extends RenderableItem {
         int attempts = 0;
         do {
             dir = Direction.random(rand);
-            dist = rand.nextInt(SettingsInterface.MAX_MOVE_DIST) + 1;
+            dist = rand.nextInt(config.maxMoveDist()) + 1;
             //Stop if no suitable Direction and distance found after 3 attempts
             if (++attempts > 5) {
                 return;
             }
         } while(!world.canMove(this, dir, dist));
 
-        world.move(this, dir, dist);
+        planMove(PLAN_MOVE, dir, dist);
     }
 
     /**
-     * Move the Agent to the adjacent Chunk with the most marker
-     * @return has the Agent succeeded in its movement
+     * Decide to move the Agent to the adjacent Chunk with the most marker
+     * @return has the Agent found a Chunk to move to
      */
     private boolean tryMoveToMarker() {
         //Get the ordered list of Direction, ordered by marker value, most first
-        Map<Float, Direction> markers = world.getMarkers(this);
+        int count = world.getMarkers(this, markerDirections, markerValues);
 
-        //For each Direction, try to move, return if success, go to next if not
-        for (Map.Entry<Float, Direction> entry : markers.entrySet()) {
-            if (world.canMove(this, entry.getValue(), 1)) {
-                world.move(this, entry.getValue(), 1);
+        //For each Direction, check if the Agent can move, stop at the first one possible
+        for (int i = 0; i < count; i++) {
+            if (world.canMove(this, markerDirections[i], 1)) {
+                planMove(PLAN_MOVE, markerDirections[i], 1);
                 return true;
             }
         }
@@ -275,31 +365,118 @@ public class Agent extends RenderableItem {
     /**
      * Return whether an Agent is asking for help in the immediate surrounding of the Agent
      * if found, the Agent will help it
-     * @return has the Agent enslaved himself
+     * @param carrying is the Agent carrying an Object
+     * @return will the Agent enslave himself
      */
-    private boolean lookForAgentAskingHelp() {
+    private boolean lookForAgentAskingHelp(boolean carrying) {
         Agent asking = world.lookForAgentInNeed(this);
-        if (asking != null && master == null && slave == null && carriedObject == null) {
-            asking.slave = this;
-            master = asking;
-            world.removeMarker(master);
+        if (asking != null && master == null && slave == null && !carrying) {
+            plan |= PLAN_HELP;
+            planHelped = asking;
             return true;
         }
         return false;
     }
 
+    /**
+     * Add a movement to the plan
+     * @param type the type of movement (PLAN_MOVE or PLAN_MOVE_WITH_SLAVE)
+     * @param dir the Direction to move to
+     * @param dist the distance to move
+     */
+    private void planMove(int type, Direction dir, int dist) {
+        plan |= type;
+        planDirection = dir;
+        planDistance = dist;
+    }
+
+    /**
+     * Apply the current plan to the World
+     */
+    private void applyPlan() {
+        if ((plan & PLAN_PICK_UP) != 0) {
+            Object picked = world.pickUp(this);
+            if (picked == null)
+                return;
+            carriedObject = picked;
+            actionCounts[Action.PICK_UP.ordinal()]++;
+            if (carriedObject.getType() == Object.Type.C) {
+                markerCooldown = config.markerCooldown();
+                world.putMarker(this);
+                actionCounts[Action.HELP_REQUEST.ordinal()]++;
+                giveUpCooldown = config.giveUpCooldown();
+            }
+            return;
+        }
+        if ((plan & PLAN_MOVE_WITH_SLAVE) != 0) {
+            //Both Agents need to be able to move, otherwise they would be separated
+            if (world.canMove(this, planDirection, planDistance) && world.canMove(slave, planDirection, planDistance)) {
+                world.move(this, planDirection, planDistance);
+                world.move(slave, planDirection, planDistance);
+                actionCounts[Action.MOVE.ordinal()]++;
+            }
+            return;
+        }
+        if ((plan & PLAN_PUT_MARKER) != 0) {
+            //Put marker on the world and update timer
+            world.putMarker(this);
+            markerCooldown = config.markerCooldown();
+            actionCounts[Action.HELP_REQUEST.ordinal()]++;
+        }
+        if ((plan & PLAN_PUT_DOWN) != 0) {
+            if (!world.putDown(this, carriedObject))
+                return;
+            actionCounts[Action.PUT_DOWN.ordinal()]++;
+            //If the Agent puts down an Object of type C, release the slave
+            if (carriedObject.getType() == Object.Type.C)
+                releaseSlave();
+            carriedObject = null;
+            if ((plan & PLAN_GIVE_UP) != 0) {
+                releaseSlave();
+                world.removeMarker(this);
+                actionCounts[Action.GIVE_UP.ordinal()]++;
+                markerCooldown = 0;
+                giveUpCooldown = 0;
+                //The movement following a give-up depends on the markers just removed, so it is decided now
+                plan = 0;
+                move(perception, false);
+            }
+        }
+        if ((plan & PLAN_HELP) != 0) {
+            //The Agent asking may have been helped or moved away since the plan was made
+            if (planHelped.isAskingForHelp() && world.areNeighbours(this, planHelped) && master == null && slave == null && carriedObject == null) {
+                planHelped.slave = this;
+                master = planHelped;
+                world.recordHelp(master, this);
+                world.removeMarker(master);
+            }
+        } else if ((plan & PLAN_MOVE) != 0) {
+            if (world.canMove(this, planDirection, planDistance)) {
+                world.move(this, planDirection, planDistance);
+                actionCounts[Action.MOVE.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Return the number of actions of a kind applied by the Agent since its creation
+     * only written by the thread committing the Agent, read it between two updates
+     * @param action the kind of action
+     * @return the number of actions applied
+     */
+    public long getActionCount(Action action) {
+        return actionCounts[action.ordinal()];
+    }
+
     /**
      * Get the frequency of an Object in the Agent's memory
      * @param object the Object to calculate the frequency of
      * @return the calculated frequency
      */
     private float getFrequency(Object object) {
-        float count = 0;
-        if (object != null)
-            for (char c : memory.toCharArray())
-                if (c != '0' && Object.Type.valueOf(String.valueOf(c)) == object.getType())
-                    count++;
-        return count / SettingsInterface.MEMORY_SIZE;
+        if (object == null)
+            return 0;
+        return (float) memoryCounts[object.getType().ordinal() + 1] / config.memorySize();
     }
 
     /**
@@ -307,23 +484,117 @@ public class Agent extends RenderableItem {
      * @param p the local perception of the Agent
      */
     private void updateMemory(Perception p) {
+        int memorySize = config.memorySize();
+        if (memory.length != memorySize)
+            resizeMemory(memorySize);
+
         //Error checking
         Object.Type recognizedType = p.object() != null ? p.object().getType() : null;
-        if (recognizedType != null && new Random().nextFloat() < SettingsInterface.ERROR_RATE)
-            recognizedType = Object.Type.change(recognizedType);
+        if (recognizedType != null && rand.nextDouble() < config.errorRate())
+            recognizedType = Object.Type.change(recognizedType, rand);
+
+        //Overwrite the oldest entry with the new one
+        byte code = (byte) (recognizedType != null ? recognizedType.ordinal() + 1 : 0);
+        memoryCounts[memory[memoryHead]]--;
+        memoryCounts[code]++;
+        memory[memoryHead] = code;
+        memoryHead = (memoryHead + 1) % memory.length;
+    }
+
+    /**
+     * Resize the memory of the Agent, keeping the most recent entries
+     * @param memorySize the new size of the memory
+     */
+    private void resizeMemory(int memorySize) {
+        byte[] newMemory = new byte[memorySize];
+        Arrays.fill(memoryCounts, 0);
+        //Copy from most recent to oldest, the new memory is filled from the end so the oldest is at index 0
+        for (int i = 0; i < memorySize; i++) {
+            int src = i < memory.length ? Math.floorMod(memoryHead - 1 - i, memory.length) : -1;
+            byte code = src >= 0 ? memory[src] : 0;
+            newMemory[memorySize - 1 - i] = code;
+            memoryCounts[code]++;
+        }
+        memory = newMemory;
+        memoryHead = 0;
+    }
 
-        StringBuilder newMem = new StringBuilder(recognizedType != null ? p.object().getType().name() : "0");
-        for (int i = 0; i < SettingsInterface.MEMORY_SIZE - 1; i++)
-            newMem.append(memory.length() > i ? memory.charAt(i) : '0');
-        memory = newMem.toString();
+    /**
+     * Set the Object carried by the Agent, used when replaying recorded actions
+     * @param object the carried Object, null if none
+     */
+    void setCarriedObject(Object object) {
+        carriedObject = object;
     }
 
     /**
-     * Make the carried item follow the Agent (just for rendering purposes)
+     * Link or unlink an Agent helping this one, used when replaying recorded actions
+     * @param helper the Agent helping, null to release the current one
      */
-    public void anim() {
-        if (carriedObject != null)
-            carriedObject.follow(this);
+    void setSlave(Agent helper) {
+        if (slave != null)
+            slave.master = null;
+        slave = helper;
+        if (helper != null)
+            helper.master = this;
+    }
+
+    /**
+     * Return the number of bytes written by writeState()
+     * @return the size of the Agent's saved state
+     */
+    int getStateSize() {
+        return 5 * Integer.BYTES + memory.length;
+    }
+
+    /**
+     * Write the state of the Agent kept between two updates, the position and carried Object excluded
+     * @param buffer the buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.putFloat(markerCooldown);
+        buffer.putFloat(giveUpCooldown);
+        buffer.putInt(master != null ? master.id : -1);
+        buffer.putInt(slave != null ? slave.id : -1);
+        //The memory is written from the oldest entry, so it is restored with its head at 0
+        buffer.putInt(memory.length);
+        for (int i = 0; i < memory.length; i++)
+            buffer.put(memory[(memoryHead + i) % memory.length]);
+    }
+
+    /**
+     * Restore the state of the Agent written by writeState()
+     * @param buffer the buffer to read from
+     * @param carried the Object carried by the Agent, null if none
+     * @param agentTable the Agents of the World indexed by id, used to restore the master and slave links
+     * @throws IOException thrown when the saved memory length is invalid
+     */
+    void readState(ByteBuffer buffer, Object carried, Agent[] agentTable) throws IOException {
+        carriedObject = carried;
+        markerCooldown = buffer.getFloat();
+        giveUpCooldown = buffer.getFloat();
+        int masterId = buffer.getInt();
+        int slaveId = buffer.getInt();
+        master = masterId >= 0 ? agentTable[masterId] : null;
+        slave = slaveId >= 0 ? agentTable[slaveId] : null;
+        //The length is checked before allocating, a corrupted one must not exhaust the heap
+        int length = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining())
+            throw new IOException("Corrupted World snapshot");
+        memory = new byte[length];
+        buffer.get(memory);
+        memoryHead = 0;
+        Arrays.fill(memoryCounts, 0);
+        for (byte code : memory)
+            memoryCounts[code]++;
+    }
+
+    /**
+     * Return the id of the Agent, unique and dense in its World
+     * @return the Agent's id
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -333,4 +604,13 @@ public class Agent extends RenderableItem {
     public Object getCarriedObject() {
         return carriedObject;
     }
+
+    /**
+     * This enum represent the kinds of actions counted for every Agent
+     */
+    public enum Action {
+        PICK_UP, PUT_DOWN, MOVE, HELP_REQUEST, GIVE_UP;
+
+        public static final Action[] VALUES = values();
+    }
 }
@@ -1,25 +1,27 @@
 package simulation.objects;
 
 /**
- * This class represent a Chunk that can contain an Object, an Agent and a marker value
+ * This class represent a view over one cell of the World's grid
+ * the Object, Agent and marker value are stored in the World's layers, the Chunk only reads and writes through them
  */
 public class Chunk {
 
+    private final RenderableWorld world;
     private final int x;
     private final int z;
-
-    private Object object;
-    private Agent agent;
-    private float marker;
+    private final int index;
 
     /**
      * Create a new Chunk
+     * @param world the World holding the grid layers
      * @param x the Chunk position on the X axis
      * @param z the Chunk position on the Z Axis
      */
-    public Chunk(int x, int z) {
+    public Chunk(RenderableWorld world, int x, int z) {
+        this.world = world;
         this.x = x;
         this.z = z;
+        this.index = world.getSize() * z + x;
     }
 
     /**
@@ -43,7 +45,7 @@ public class Chunk {
      * @return the Object in the Chunk, null if absent
      */
     public Object getObject() {
-        return object;
+        return world.objects[index];
     }
 
     /**
@@ -51,7 +53,7 @@ public class Chunk {
      * @param object the Object to put in the Chunk
      */
     public void setObject(Object object) {
-        this.object = object;
+        world.setObject(index, object);
     }
 
     /**
@@ -59,7 +61,7 @@ public class Chunk {
      * @return the Agent in the Chunk, null if absent
      */
     public Agent getAgent() {
-        return agent;
+        return world.agentAt(index);
     }
 
     /**
@@ -67,7 +69,7 @@ public class Chunk {
      * @param agent the Agent to put in the Chunk
      */
     public void setAgent(Agent agent) {
-        this.agent = agent;
+        world.agents[index] = agent == null ? -1 : agent.getId();
     }
 
     /**
@@ -75,7 +77,7 @@ public class Chunk {
      * @param marker the new marker value of the Chunk
      */
     public void setMarker(float marker) {
-        this.marker = marker;
+        world.setMarker(index, marker);
     }
 
     /**
@@ -83,6 +85,6 @@ public class Chunk {
      * @return the current marker value of the Chunk
      */
     public float getMarker() {
-        return marker;
+        return world.getMarker(index);
     }
 }
@@ -1,7 +1,7 @@
 package simulation.objects;
 
 import org.joml.Vector2i;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * This enum contains all possible Directions that an Agent can move to
@@ -17,6 +17,8 @@ public enum Direction {
     SOUTH_WEST(-1, -1),
     NONE(0, 0);
 
+    static final Direction[] VALUES = values();
+
     private final int xDir;
     private final int zDir;
 
@@ -34,13 +36,29 @@ public enum Direction {
         return new Vector2i(xDir * amount, zDir * amount);
     }
 
+    /**
+     * Return the displacement on the X axis for a distance of 1
+     * @return the X displacement
+     */
+    public int getX() {
+        return xDir;
+    }
+
+    /**
+     * Return the displacement on the Z axis for a distance of 1
+     * @return the Z displacement
+     */
+    public int getZ() {
+        return zDir;
+    }
+
     /**
      * Return a random direction
-     * @param rand a seeded Random used to generate the direction
+     * @param rand a seeded random stream used to generate the direction
      * @return the random Direction
      */
-    public static Direction random(Random rand) {
-        return values()[rand.nextInt(values().length)];
+    public static Direction random(SplittableRandom rand) {
+        return VALUES[rand.nextInt(VALUES.length)];
     }
 
     /**
@@ -52,7 +70,7 @@ public enum Direction {
     public static Direction get(int x, int z) {
         x = Integer.compare(x, 0);
         z = Integer.compare(z, 0);
-        for (Direction direction : values())
+        for (Direction direction : VALUES)
             if (direction.xDir == x && direction.zDir == z)
                 return direction;
         return NONE;
@@ -3,7 +3,7 @@ package simulation.objects;
 import engine.objects.RenderableItem;
 import engine.rendering.Mesh;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * This class represent an Object that lives in the World
@@ -11,6 +11,7 @@ import java.util.Random;
 public class Object extends RenderableItem {
 
     private final Type type;
+    private int id;
 
     /**
      * Create a new Object
@@ -20,6 +21,23 @@ public class Object extends RenderableItem {
     public Object(Mesh mesh, Type type) {
         super(mesh);
         this.type = type;
+        this.id = -1;
+    }
+
+    /**
+     * Return the id of the Object, unique and dense in its World
+     * @return the Object's id, -1 if it was never put in a World
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Set the id of the Object, given by the World when first put
+     * @param id the Object's id
+     */
+    void setId(int id) {
+        this.id = id;
     }
 
     /**
@@ -47,19 +65,23 @@ public class Object extends RenderableItem {
         B,
         C;
 
+        private static final Type[] VALUES = values();
+
         /**
          * Get a random Type that is different from the passed one
          * @param initial the original Type
+         * @param rand the random stream used to pick the new Type
          * @return a Type different from the passed one
          */
-        public static Type change(Type initial) {
+        public static Type change(Type initial, SplittableRandom rand) {
             Type newType;
 
             do {
-                newType = values()[new Random().nextInt(values().length)];
+                newType = VALUES[rand.nextInt(VALUES.length)];
             } while (newType.equals(initial));
 
             return newType;
         }
+
     }
 }
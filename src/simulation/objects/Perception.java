@@ -1,6 +1,39 @@
 package simulation.objects;
 
 /**
- * This record represent a Perception as perceived by an Agent
+ * This class represent a Perception as perceived by an Agent
+ * each Agent owns one instance that is refilled on every update, so perceiving doesn't allocate
  */
-public record Perception(Object object, float helpMarker) {}
+public class Perception {
+
+    private Object object;
+    private float helpMarker;
+
+    /**
+     * Set the content of the Perception
+     * @param object the Object on the ground, null if absent
+     * @param helpMarker the help marker value on the ground
+     * @return the Perception, to chain method calls
+     */
+    Perception set(Object object, float helpMarker) {
+        this.object = object;
+        this.helpMarker = helpMarker;
+        return this;
+    }
+
+    /**
+     * Return the perceived Object
+     * @return the Object on the ground, null if absent
+     */
+    public Object object() {
+        return object;
+    }
+
+    /**
+     * Return the perceived help marker value
+     * @return the help marker value on the ground
+     */
+    public float helpMarker() {
+        return helpMarker;
+    }
+}
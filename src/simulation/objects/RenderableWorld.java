@@ -3,52 +3,322 @@ package simulation.objects;
 import engine.objects.RenderableItem;
 import engine.rendering.Mesh;
 import engine.rendering.Texture;
-import org.joml.Vector4i;
+import org.joml.Vector4f;
 import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11C;
 import org.lwjgl.opengl.GL13C;
+import org.lwjgl.opengl.GL30C;
 import settings.SettingsInterface;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Contains the methods used for rendering and animating the world
  */
 public class RenderableWorld extends RenderableItem{
 
-    protected final Map<Agent, Chunk> lastPosition;
-    protected final Map<Agent, Float> lastRotation;
-
     private final ByteBuffer help_marker_buffer;
     private final Texture help_marker_texture;
 
-    protected final Map<Agent, Chunk> positions;
-    protected final Map<Agent, Float> rotations;
-    protected final Chunk[] chunks;
+    //Region of the marker texture to upload, written cells since the last snapshot and cells holding a marker at the last upload
+    private final int[] dirtyMarkers;
+    private final int[] liveMarkers;
+    //Region of the markers written since the last snapshot was published, reused by every publish
+    private final int[] publishedMarkers;
+    private int uploadedTick;
+    private boolean markersShown;
+
+    //Double buffered snapshots, the front one is used by the render thread while the other one is filled by the simulation
+    private final WorldSnapshot[] snapshots;
+    private int front;
+    private boolean pending;
+
+    //Agent state tables, indexed by Agent id, a position of -1 means the Agent isn't placed yet
+    protected Agent[] agentTable;
+    protected int[] positions;
+    protected int[] lastPositions;
+    protected float[] rotations;
+    protected float[] lastRotations;
+    protected int agentCount;
+
+    //Object tables, indexed by Object id, a cell of -1 means the Object is carried
+    protected Object[] objectTable;
+    protected int[] objectCells;
+    protected int objectCount;
+
+    //Grid layers, a cell (x, z) is stored at index size * z + x, an Agent id of -1 means no Agent
+    //markers are stored as the value and update number of their last write, the attenuation is applied when read
+    protected final float[] markers;
+    protected final int[] markerTicks;
+    protected final byte[] objectTypes;
+    protected final Object[] objects;
+    protected final int[] agents;
     protected int size;
+    protected final SortingQuality sortingQuality;
+
+    protected int tick;
+    private float attenuation;
+    //Every cell is checked for an expired marker once every MARKER_SWEEP_PERIOD updates, a slice of the grid per update
+    private static final int MARKER_SWEEP_PERIOD = 1 << 16;
+    private int markerSweep;
+    private float[] attenuationPowers;
 
     /**
      * Create a new RenderableWorld
+     * if the mesh is null, the World is headless and no GL resources are allocated
      * @param size the size of the world
-     * @param mesh the meshed used by the world
+     * @param mesh the meshed used by the world, null if headless
+     * @param attenuation the attenuation of the markers on every update
      */
-    public RenderableWorld(int size, Mesh mesh) {
+    public RenderableWorld(int size, Mesh mesh, float attenuation) {
         super(mesh);
         setPosition(0, 1, 0);
-        positions = new HashMap<>();
-        rotations = new HashMap<>();
-        lastPosition = new HashMap<>();
-        lastRotation = new HashMap<>();
-        chunks = new Chunk[size * size];
+        agentTable = new Agent[16];
+        positions = new int[16];
+        lastPositions = new int[16];
+        rotations = new float[16];
+        lastRotations = new float[16];
+        agentCount = 0;
+        objectTable = new Object[16];
+        objectCells = new int[16];
+        objectCount = 0;
+        markers = new float[size * size];
+        markerTicks = new int[size * size];
+        tick = 0;
+        setAttenuation(attenuation);
+        objectTypes = new byte[size * size];
+        objects = new Object[size * size];
+        agents = new int[size * size];
+        Arrays.fill(agents, -1);
         this.size = size;
-        for (int i = 0; i < size * size; i++) {
-            Chunk chunk = new Chunk(i % size, (i / size));
-            chunks[i] = chunk;
+        sortingQuality = new SortingQuality(objectTypes, size);
+        if (mesh != null) {
+            help_marker_buffer = BufferUtils.createByteBuffer(size * size);
+            help_marker_texture = new Texture(size, size, GL30C.GL_R8, GL11C.GL_RED, 1);
+            mesh.addTexture(GL13C.GL_TEXTURE2, help_marker_texture);
+        } else {
+            help_marker_buffer = null;
+            help_marker_texture = null;
+        }
+        dirtyMarkers = emptyRegion();
+        liveMarkers = emptyRegion();
+        publishedMarkers = emptyRegion();
+        uploadedTick = -1;
+        markersShown = false;
+        snapshots = new WorldSnapshot[] {new WorldSnapshot(size), new WorldSnapshot(size)};
+        front = 0;
+        pending = false;
+    }
+
+    /**
+     * Return whether the World is headless (no Mesh and no GL resources) or not
+     * @return is the World headless
+     */
+    public boolean isHeadless() {
+        return getMesh() == null;
+    }
+
+    /**
+     * Return the index of a cell in the grid layers
+     * @param x cell's X position
+     * @param z cell's Z position
+     * @return the index of the cell, -1 if out of range
+     */
+    protected int index(int x, int z) {
+        if (x < 0 || z < 0 || x >= size || z >= size)
+            return -1;
+        return size * z + x;
+    }
+
+    /**
+     * Register an Agent to the World and give it a dense id
+     * @param agent the Agent to register
+     * @return the id of the Agent
+     */
+    protected int register(Agent agent) {
+        if (agentCount == agentTable.length) {
+            int capacity = agentTable.length * 2;
+            agentTable = Arrays.copyOf(agentTable, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            lastPositions = Arrays.copyOf(lastPositions, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+            lastRotations = Arrays.copyOf(lastRotations, capacity);
+        }
+        agentTable[agentCount] = agent;
+        positions[agentCount] = -1;
+        lastPositions[agentCount] = -1;
+        return agentCount++;
+    }
+
+    /**
+     * Register an Object to the World and give it a dense id
+     * @param object the Object to register
+     */
+    protected void register(Object object) {
+        if (objectCount == objectTable.length) {
+            int capacity = objectTable.length * 2;
+            objectTable = Arrays.copyOf(objectTable, capacity);
+            objectCells = Arrays.copyOf(objectCells, capacity);
+        }
+        objectTable[objectCount] = object;
+        objectCells[objectCount] = -1;
+        object.setId(objectCount++);
+    }
+
+    /**
+     * Return the Agent in a cell
+     * @param index the index of the cell
+     * @return the Agent in the cell, null if absent
+     */
+    protected Agent agentAt(int index) {
+        int id = agents[index];
+        return id < 0 ? null : agentTable[id];
+    }
+
+    /**
+     * Set the Object of a cell, keeping the Object type layer consistent
+     * @param index the index of the cell
+     * @param object the Object to put in the cell, null to empty it
+     */
+    protected void setObject(int index, Object object) {
+        if (objects[index] != null) {
+            objectCells[objects[index].getId()] = -1;
+            sortingQuality.remove(index, objectTypes[index]);
+        }
+        if (object != null) {
+            if (object.getId() < 0)
+                register(object);
+            objectCells[object.getId()] = index;
+            sortingQuality.add(index, typeCode(object));
         }
-        help_marker_buffer = BufferUtils.createByteBuffer(size * size * 4);
-        help_marker_texture = new Texture(size, size);
-        mesh.addTexture(GL13C.GL_TEXTURE2, help_marker_texture);
+        objects[index] = object;
+        objectTypes[index] = typeCode(object);
+    }
+
+    /**
+     * Return the current marker value of a cell
+     * the value is attenuated once per update since it was written, and drops to 0 once under 0.05,
+     * computed as value * attenuation^age it matches the repeated attenuation within a relative 1e-5
+     * @param index the index of the cell
+     * @return the current marker value
+     */
+    protected float getMarker(int index) {
+        return attenuate(markers[index], tick - markerTicks[index], attenuation, attenuationPowers);
+    }
+
+    /**
+     * Return a marker value after a number of updates
+     * @param value the marker value when written
+     * @param age the number of updates since it was written
+     * @param attenuation the attenuation applied on each update
+     * @param powers the cached powers of the attenuation
+     * @return the attenuated marker value, 0 if under 0.05
+     */
+    static float attenuate(float value, int age, float attenuation, float[] powers) {
+        if (value == 0 || age == 0)
+            return value;
+        float marker = value * (age < powers.length ? powers[age] : (float) Math.pow(attenuation, age));
+        return marker < .05 ? 0 : marker;
+    }
+
+    /**
+     * Clear the expired markers of the next slice of the grid, called once per update between two updates
+     * a marker under the cutoff keeps its value and update number until written again, so its age would grow without bound,
+     * clearing it keeps every age far below the int range whatever the length of the run
+     */
+    protected void sweepExpiredMarkers() {
+        int cells = size * size;
+        int from = markerSweep;
+        int to = Math.min(from + (cells + MARKER_SWEEP_PERIOD - 1) / MARKER_SWEEP_PERIOD, cells);
+        boolean cleared = false;
+        for (int i = from; i < to; i++) {
+            if (markers[i] != 0 && getMarker(i) == 0) {
+                markers[i] = 0;
+                cleared = true;
+            }
+        }
+        //The snapshots hold a copy of the cleared cells, it must be replaced as well
+        if (cleared)
+            markDirty(0, from / size, size - 1, (to - 1) / size);
+        markerSweep = to < cells ? to : 0;
+    }
+
+    /**
+     * Set the marker value of a cell
+     * @param index the index of the cell
+     * @param marker the new marker value
+     */
+    protected void setMarker(int index, float marker) {
+        markers[index] = marker;
+        markerTicks[index] = tick;
+        markDirty(index % size, index / size, index % size, index / size);
+    }
+
+    /**
+     * Mark a rectangle of markers as modified, for it to be uploaded with the next frame
+     * can be called concurrently by the Agents' updates
+     * @param minX the lowest X of the rectangle
+     * @param minZ the lowest Z of the rectangle
+     * @param maxX the highest X of the rectangle
+     * @param maxZ the highest Z of the rectangle
+     */
+    protected void markDirty(int minX, int minZ, int maxX, int maxZ) {
+        if (isHeadless())
+            return;
+        synchronized (dirtyMarkers) {
+            include(dirtyMarkers, minX, minZ, maxX, maxZ);
+        }
+    }
+
+    /**
+     * Stamp a row of marker values on a row of cells
+     * putting keeps the highest of the two values, removing subtracts the stamp down to 0
+     * @param index the index of the first cell
+     * @param stamp the marker values to stamp
+     * @param stampIndex the index of the first value in the stamp
+     * @param length the number of cells to stamp
+     * @param put true to put the stamp, false to remove it
+     */
+    protected void stampMarkers(int index, float[] stamp, int stampIndex, int length, boolean put) {
+        for (int k = 0; k < length; k++) {
+            float marker = getMarker(index + k);
+            float value = stamp[stampIndex + k];
+            markers[index + k] = put ? Math.max(value, marker) : Math.max(marker - value, 0);
+        }
+        //Every stamped cell now holds its current value
+        Arrays.fill(markerTicks, index, index + length, tick);
+    }
+
+    /**
+     * Set the attenuation applied to the markers on each update
+     * the powers of the attenuation are cached up to the age where a marker of 1 falls under the cutoff
+     * @param attenuation the new attenuation factor
+     */
+    protected void setAttenuation(float attenuation) {
+        this.attenuation = attenuation;
+        int lifetime = attenuation < 1 ? (int) Math.ceil(Math.log(.05) / Math.log(attenuation)) + 1 : 1;
+        attenuationPowers = new float[Math.min(Math.max(lifetime, 1), 1 << 16)];
+        for (int age = 0; age < attenuationPowers.length; age++)
+            attenuationPowers[age] = (float) Math.pow(attenuation, age);
+    }
+
+    /**
+     * Return the attenuation currently applied to the markers
+     * @return the attenuation factor
+     */
+    protected float getAttenuation() {
+        return attenuation;
+    }
+
+    /**
+     * Return the code of an Object's type as stored in the Object type layer
+     * @param object the Object to encode
+     * @return 0 if there is no Object, the Type's ordinal + 1 otherwise
+     */
+    protected static byte typeCode(Object object) {
+        return object == null ? 0 : (byte) (object.getType().ordinal() + 1);
     }
 
     /**
@@ -66,44 +336,142 @@ public class RenderableWorld extends RenderableItem{
      * @param agent the Agent to update
      */
     protected void updateVisual(Agent agent) {
-        Chunk nextPos = positions.get(agent);
-        Chunk lastPos = lastPosition.get(agent) == null ? nextPos : lastPosition.get(agent);
-        Direction direction = Direction.get(lastPos.getX() - nextPos.getX(), lastPos.getZ() - nextPos.getZ());
+        int id = agent.getId();
+        int nextPos = positions[id];
+        int lastPos = lastPositions[id] < 0 ? nextPos : lastPositions[id];
+        Direction direction = Direction.get(lastPos % size - nextPos % size, lastPos / size - nextPos / size);
         switch (direction) {
-            case NORTH -> rotations.put(agent, 0f);
-            case SOUTH -> rotations.put(agent, 180f);
-            case EAST -> rotations.put(agent, 270f);
-            case WEST -> rotations.put(agent, 90f);
-            case NORTH_EAST -> rotations.put(agent, 315f);
-            case NORTH_WEST -> rotations.put(agent, 45f);
-            case SOUTH_EAST -> rotations.put(agent, 225f);
-            case SOUTH_WEST -> rotations.put(agent, 135f);
+            case NORTH -> rotations[id] = 0f;
+            case SOUTH -> rotations[id] = 180f;
+            case EAST -> rotations[id] = 270f;
+            case WEST -> rotations[id] = 90f;
+            case NORTH_EAST -> rotations[id] = 315f;
+            case NORTH_WEST -> rotations[id] = 45f;
+            case SOUTH_EAST -> rotations[id] = 225f;
+            case SOUTH_WEST -> rotations[id] = 135f;
+        }
+    }
+
+    /**
+     * Copy the current state of the World to a snapshot for the render thread
+     * nothing is copied while the previous snapshot hasn't been picked up by the render thread,
+     * so the copy is made at most once per frame however many updates are run
+     */
+    public void publishSnapshot() {
+        WorldSnapshot back, other;
+        synchronized (snapshots) {
+            if (pending)
+                return;
+            back = snapshots[1 - front];
+            other = snapshots[front];
+        }
+        back.tick = tick;
+        back.time = System.nanoTime();
+        if (back.positions.length < agentCount) {
+            back.positions = new int[agentTable.length];
+            back.lastPositions = new int[agentTable.length];
+            back.rotations = new float[agentTable.length];
+            back.lastRotations = new float[agentTable.length];
+            back.carried = new int[agentTable.length];
+        }
+        back.agentCount = agentCount;
+        System.arraycopy(positions, 0, back.positions, 0, agentCount);
+        System.arraycopy(lastPositions, 0, back.lastPositions, 0, agentCount);
+        System.arraycopy(rotations, 0, back.rotations, 0, agentCount);
+        System.arraycopy(lastRotations, 0, back.lastRotations, 0, agentCount);
+        for (int id = 0; id < agentCount; id++) {
+            Object carried = agentTable[id].getCarriedObject();
+            back.carried[id] = carried == null ? -1 : carried.getId();
+        }
+        if (back.objectCells.length < objectCount)
+            back.objectCells = new int[objectTable.length];
+        back.objectCount = objectCount;
+        back.objectTable = objectTable;
+        System.arraycopy(objectCells, 0, back.objectCells, 0, objectCount);
+        back.attenuation = attenuation;
+        back.attenuationPowers = attenuationPowers;
+        int[] written = publishedMarkers;
+        written[0] = written[1] = size;
+        written[2] = written[3] = -1;
+        synchronized (dirtyMarkers) {
+            include(written, dirtyMarkers[0], dirtyMarkers[1], dirtyMarkers[2], dirtyMarkers[3]);
+            dirtyMarkers[0] = dirtyMarkers[1] = size;
+            dirtyMarkers[2] = dirtyMarkers[3] = -1;
+        }
+        include(back.dirtyMarkers, written[0], written[1], written[2], written[3]);
+        //Only the markers written since this copy was last filled are copied, the other copy gets them on its next fill
+        include(other.staleMarkers, written[0], written[1], written[2], written[3]);
+        int[] stale = back.staleMarkers;
+        include(stale, written[0], written[1], written[2], written[3]);
+        if (stale[0] <= stale[2]) {
+            int width = stale[2] - stale[0] + 1;
+            for (int z = stale[1]; z <= stale[3]; z++) {
+                int row = z * size + stale[0];
+                System.arraycopy(markers, row, back.markers, row, width);
+                System.arraycopy(markerTicks, row, back.markerTicks, row, width);
+            }
+        }
+        stale[0] = stale[1] = size;
+        stale[2] = stale[3] = -1;
+        synchronized (snapshots) {
+            pending = true;
         }
     }
 
     /**
-     * Update the animation of the Agents
+     * Switch to the latest snapshot published by the simulation thread, if any
+     * called by the render thread once per frame, the snapshot is then used until the next call
+     * @return the time at which the current snapshot was taken (System.nanoTime)
+     */
+    public long acquireSnapshot() {
+        synchronized (snapshots) {
+            if (pending) {
+                front = 1 - front;
+                pending = false;
+            }
+            return snapshots[front].time;
+        }
+    }
+
+    /**
+     * Update the animation of the Agents and the position of the Objects from the current snapshot
      * @param percent the progress of animation (between 2 updates) from 0 to 1
      */
     public void animate(double percent) {
-        for (Agent a : positions.keySet()) {
-            Chunk lastPos = lastPosition.get(a);
-            Chunk nextPos = positions.get(a);
-            Float lastRot = lastRotation.get(a);
-            Float nextRot = rotations.get(a);
+        WorldSnapshot snapshot = snapshots[front];
+        int[] positions = snapshot.positions;
+        int[] lastPositions = snapshot.lastPositions;
+        float[] rotations = snapshot.rotations;
+        float[] lastRotations = snapshot.lastRotations;
+
+        //Every Object lying on the ground is placed again, setPosition skips the ones whose position didn't change
+        for (int id = 0; id < snapshot.objectCount; id++) {
+            int cell = snapshot.objectCells[id];
+            if (cell >= 0)
+                snapshot.objectTable[id].setPosition(cell % size + .5f, 1, cell / size + .5f);
+        }
+
+        for (int id = 0; id < snapshot.agentCount; id++) {
+            Agent a = agentTable[id];
+            int lastPos = lastPositions[id];
+            int nextPos = positions[id];
+            float lastRot = lastRotations[id];
+            float nextRot = rotations[id];
+            if (nextPos < 0)
+                continue;
 
             //Linear interpolation between the 2 positions
-            if (lastPos != null && nextPos != null && (lastPos.getX() != nextPos.getX() || lastPos.getZ() != nextPos.getZ())) {
-                float x = (float) ((1 - percent) * lastPos.getX() + percent * nextPos.getX());
-                float z = (float) ((1 - percent) * lastPos.getZ() + percent * nextPos.getZ());
+            if (lastPos >= 0 && lastPos != nextPos) {
+                float x = (float) ((1 - percent) * (lastPos % size) + percent * (nextPos % size));
+                float z = (float) ((1 - percent) * (lastPos / size) + percent * (nextPos / size));
                 a.setPosition(x+.5f, 1, z+.5f);
-            } else if (nextPos != null){
-                a.setPosition(nextPos.getX() + 0.5f, 1, nextPos.getZ() + 0.5f);
+            } else {
+                a.setPosition(nextPos % size + 0.5f, 1, nextPos / size + 0.5f);
             }
 
             //Linear interpolation between the 2 rotation
             float scaledPercent = (float) Math.min(percent * 5, 1);
-            if (lastRot != null && nextRot != null && (!lastRot.equals(nextRot))) {
+            if (lastRot != nextRot) {
                 float dRot = nextRot - lastRot;
                 //Find the rotation direction that is the fastest
                 if (dRot > 180)
@@ -111,76 +479,61 @@ public class RenderableWorld extends RenderableItem{
                 else if (dRot < -180)
                     dRot += 360;
                 a.setRotation(0, lastRot + scaledPercent * dRot, 0);
-            } else if (nextRot != null) {
+            } else {
                 a.setRotation(0, nextRot, 0);
             }
 
             //update the carried object if it exist
-            a.anim();
+            if (snapshot.carried[id] >= 0)
+                snapshot.objectTable[snapshot.carried[id]].follow(a);
 
             //Prevent the animation from looping (normally not useful, but just in case for the sake of it)
             if (percent >= 0.99f) {
-                lastPosition.put(a, nextPos);
-                lastRotation.put(a, nextRot);
+                lastPositions[id] = nextPos;
+                lastRotations[id] = nextRot;
             }
         }
     }
 
     /**
-     * Fill the 3 ByteBuffers with the world's information
+     * Fill the 3 ByteBuffers with the world's information from the current snapshot
      * @param objectBuffer the buffer containing the object map
      * @param agentBuffer the buffer containing the agent map
      * @param markerBuffer the buffer containing the marker map
      */
     public void fillBuffers(ByteBuffer objectBuffer, ByteBuffer agentBuffer, ByteBuffer markerBuffer) {
-        objectBuffer.clear();
-        agentBuffer.clear();
-        markerBuffer.clear();
-        Vector4i objectColor = new Vector4i();
-        Vector4i agentColor = new Vector4i();
-        Vector4i markerColor = new Vector4i();
-        for (Chunk chunk : chunks) {
-            objectColor.set(128, 128, 128, 255);
-            agentColor.set(128, 128, 128, 255);
-            markerColor.set(128, 128, 128, 255);
-            //If the Chunk contains an Object, set it's color to the Object's color
-            if (chunk.getObject() != null) {
-                switch (chunk.getObject().getType()) {
-                    case A -> objectColor.set((int) (SettingsInterface.A_COLOR.x * 255), (int) (SettingsInterface.A_COLOR.y * 255), (int) (SettingsInterface.A_COLOR.z * 255), (int) (SettingsInterface.A_COLOR.w * 255));
-                    case B -> objectColor.set((int) (SettingsInterface.B_COLOR.x * 255), (int) (SettingsInterface.B_COLOR.y * 255), (int) (SettingsInterface.B_COLOR.z * 255), (int) (SettingsInterface.B_COLOR.w * 255));
-                    case C -> objectColor.set((int) (SettingsInterface.C_COLOR.x * 255), (int) (SettingsInterface.C_COLOR.y * 255), (int) (SettingsInterface.C_COLOR.z * 255), (int) (SettingsInterface.C_COLOR.w * 255));
-                }
-            }
-            //If the Chunk contains an Agent, set it's color to the Agent's carried Object's color
-            if (chunk.getAgent() != null) {
-                if (chunk.getAgent().getCarriedObject() != null) {
-                    switch (chunk.getAgent().getCarriedObject().getType()) {
-                        case A -> agentColor.set((int) (SettingsInterface.A_COLOR.x * 255), (int) (SettingsInterface.A_COLOR.y * 255), (int) (SettingsInterface.A_COLOR.z * 255), (int) (SettingsInterface.A_COLOR.w * 255));
-                        case B -> agentColor.set((int) (SettingsInterface.B_COLOR.x * 255), (int) (SettingsInterface.B_COLOR.y * 255), (int) (SettingsInterface.B_COLOR.z * 255), (int) (SettingsInterface.B_COLOR.w * 255));
-                        case C -> agentColor.set((int) (SettingsInterface.C_COLOR.x * 255), (int) (SettingsInterface.C_COLOR.y * 255), (int) (SettingsInterface.C_COLOR.z * 255), (int) (SettingsInterface.C_COLOR.w * 255));
-                    }
-                } else {
-                    agentColor.set(255, 255, 255, 255);
-                }
-            }
-
-            //Set the red level according to the Chunk's marker level
-            markerColor.x += Math.min(chunk.getMarker() * 127, 127);
-
-            objectBuffer.put((byte) objectColor.x);
-            objectBuffer.put((byte) objectColor.y);
-            objectBuffer.put((byte) objectColor.z);
-            objectBuffer.put((byte) objectColor.w);
+        WorldSnapshot snapshot = snapshots[front];
+        objectBuffer.clear().order(ByteOrder.BIG_ENDIAN);
+        agentBuffer.clear().order(ByteOrder.BIG_ENDIAN);
+        markerBuffer.clear().order(ByteOrder.BIG_ENDIAN);
+        //Colors indexed by Object type code, 0 being the empty ground
+        int[] colors = {
+                packColor(128, 128, 128, 255),
+                packColor(SettingsInterface.A_COLOR),
+                packColor(SettingsInterface.B_COLOR),
+                packColor(SettingsInterface.C_COLOR)
+        };
+        int emptyAgent = packColor(255, 255, 255, 255);
+        for (int i = 0; i < snapshot.markers.length; i++) {
+            objectBuffer.putInt(colors[0]);
+            agentBuffer.putInt(colors[0]);
+            //Set the red level according to the cell's marker level
+            markerBuffer.putInt(packColor(128 + (int) Math.min(snapshot.getMarker(i) * 127, 127), 128, 128, 255));
+        }
 
-            agentBuffer.put((byte) agentColor.x);
-            agentBuffer.put((byte) agentColor.y);
-            agentBuffer.put((byte) agentColor.z);
-            agentBuffer.put((byte) agentColor.w);
+        //Set the color of the cells holding an Object to the Object's color
+        for (int id = 0; id < snapshot.objectCount; id++) {
+            int cell = snapshot.objectCells[id];
+            if (cell >= 0)
+                objectBuffer.putInt(cell * 4, colors[typeCode(snapshot.objectTable[id])]);
+        }
 
-            markerBuffer.put((byte) markerColor.x);
-            markerBuffer.put((byte) markerColor.y);
-            markerBuffer.put((byte) markerColor.z);
-            markerBuffer.put((byte) markerColor.w);
+        //Set the color of the cells holding an Agent to the Agent's carried Object's color
+        for (int id = 0; id < snapshot.agentCount; id++) {
+            int cell = snapshot.positions[id];
+            int carried = snapshot.carried[id];
+            if (cell >= 0)
+                agentBuffer.putInt(cell * 4, carried >= 0 ? colors[typeCode(snapshot.objectTable[carried])] : emptyAgent);
         }
 
         //Flip the buffers to render then in a texture sampler later
@@ -190,18 +543,108 @@ public class RenderableWorld extends RenderableItem{
     }
 
     /**
-     * Render the marker texture sampler used to render them on the World
+     * Pack a color as an int, in the byte order expected by the texture samplers (RGBA)
+     * @param r red level from 0 to 255
+     * @param g green level from 0 to 255
+     * @param b blue level from 0 to 255
+     * @param a alpha level from 0 to 255
+     * @return the packed color
+     */
+    private static int packColor(int r, int g, int b, int a) {
+        return (r & 0xFF) << 24 | (g & 0xFF) << 16 | (b & 0xFF) << 8 | (a & 0xFF);
+    }
+
+    /**
+     * Pack a color as an int, in the byte order expected by the texture samplers (RGBA)
+     * @param color the color as RGBA (0f-1f)
+     * @return the packed color
+     */
+    private static int packColor(Vector4f color) {
+        return packColor((int) (color.x * 255), (int) (color.y * 255), (int) (color.z * 255), (int) (color.w * 255));
+    }
+
+    /**
+     * Render the marker texture sampler used to render them on the World from the current snapshot
+     * only the region holding markers is uploaded, and nothing at all when the markers didn't change
      */
     public void renderMarkers() {
-        for (Chunk c : chunks) {
-            help_marker_buffer.put((byte) ((int)((SettingsInterface.SHOW_MARKERS ? c.getMarker() : 0) * 255) & 0xFF));
-            help_marker_buffer.put((byte) 0);
-            help_marker_buffer.put((byte) 0);
-            help_marker_buffer.put((byte) 0);
+        if (isHeadless())
+            return;
+        WorldSnapshot snapshot = snapshots[front];
+        if (!SettingsInterface.SHOW_MARKERS) {
+            //Clear the texture once when the markers are hidden
+            if (markersShown) {
+                markersShown = false;
+                help_marker_buffer.clear();
+                while (help_marker_buffer.hasRemaining())
+                    help_marker_buffer.put((byte) 0);
+                help_marker_buffer.clear();
+                help_marker_texture.load(help_marker_buffer, 0, 0, size, size);
+            }
+            return;
+        }
+
+        int[] region = emptyRegion();
+        if (!markersShown) {
+            markersShown = true;
+            include(region, 0, 0, size - 1, size - 1);
         }
-        help_marker_buffer.flip();
-        help_marker_texture.load(help_marker_buffer);
-        help_marker_buffer.clear();
+        include(region, snapshot.dirtyMarkers[0], snapshot.dirtyMarkers[1], snapshot.dirtyMarkers[2], snapshot.dirtyMarkers[3]);
+        snapshot.dirtyMarkers[0] = snapshot.dirtyMarkers[1] = size;
+        snapshot.dirtyMarkers[2] = snapshot.dirtyMarkers[3] = -1;
+        //Markers fade every update, so every cell holding one is uploaded again after an update
+        if (uploadedTick != snapshot.tick) {
+            include(region, liveMarkers[0], liveMarkers[1], liveMarkers[2], liveMarkers[3]);
+            liveMarkers[0] = liveMarkers[1] = size;
+            liveMarkers[2] = liveMarkers[3] = -1;
+        }
+        uploadedTick = snapshot.tick;
+        if (region[0] > region[2])
+            return;
+
+        for (int z = region[1]; z <= region[3]; z++) {
+            int row = z * size;
+            for (int x = region[0]; x <= region[2]; x++) {
+                int value = (int) (snapshot.getMarker(row + x) * 255) & 0xFF;
+                help_marker_buffer.put(row + x, (byte) value);
+                if (value != 0)
+                    include(liveMarkers, x, z, x, z);
+            }
+        }
+        help_marker_texture.load(help_marker_buffer, region[0], region[1], region[2] - region[0] + 1, region[3] - region[1] + 1);
+    }
+
+    /**
+     * Create an empty region of the World, stored as {minX, minZ, maxX, maxZ}
+     * @return an empty region
+     */
+    private int[] emptyRegion() {
+        return new int[] {size, size, -1, -1};
+    }
+
+    /**
+     * Extend a region to include a rectangle
+     * @param region the region to extend
+     * @param minX the lowest X of the rectangle
+     * @param minZ the lowest Z of the rectangle
+     * @param maxX the highest X of the rectangle
+     * @param maxZ the highest Z of the rectangle
+     */
+    private static void include(int[] region, int minX, int minZ, int maxX, int maxZ) {
+        if (minX > maxX)
+            return;
+        region[0] = Math.min(region[0], minX);
+        region[1] = Math.min(region[1], minZ);
+        region[2] = Math.max(region[2], maxX);
+        region[3] = Math.max(region[3], maxZ);
+    }
+
+    /**
+     * Return the number of the current update, counted from the generation of the World or kept from a snapshot
+     * @return the update number
+     */
+    public int getTick() {
+        return tick;
     }
 
     /**
@@ -212,10 +655,33 @@ public class RenderableWorld extends RenderableItem{
         return size;
     }
 
+    /**
+     * Return the sorting quality of the Objects, kept up to date as they are put and removed
+     * @return the sorting quality of the World
+     */
+    public SortingQuality getSortingQuality() {
+        return sortingQuality;
+    }
+
+    /**
+     * Return the fraction of the cells holding a help marker
+     * scans the whole World, read it between two updates
+     * @return the fraction of marked cells, between 0 and 1
+     */
+    public float getMarkerCoverage() {
+        int marked = 0;
+        for (int i = 0; i < markers.length; i++)
+            if (markers[i] != 0 && getMarker(i) != 0)
+                marked++;
+        return (float) marked / markers.length;
+    }
+
     /**
      * Clean up the memory used by the World's mesh
      */
     public void cleanup() {
+        if (isHeadless())
+            return;
         getMesh().cleanUp();
         getMesh().clearSamplers();
     }
@@ -0,0 +1,156 @@
+package simulation.objects;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represent the sorting quality of the Objects of a World, as the ratio of same type neighbours
+ * two Objects are neighbours if their cells touch, diagonals included,
+ * the counts are updated on every Object put or removed so reading them never scans the grid,
+ * and can be updated concurrently by Agents committing in different tiles
+ */
+public class SortingQuality {
+
+    //Offsets of the neighbours following a cell in the grid order
+    private static final int[] FORWARD_X = {1, -1, 0, 1};
+    private static final int[] FORWARD_Z = {0, 1, 1, 1};
+
+    private final byte[] objectTypes;
+    private final int size;
+    //Indexed by Object type code, number of neighbouring pairs of the type and number of neighbours of the Objects of the type
+    private final LongAdder[] samePairs;
+    private final LongAdder[] neighbours;
+
+    /**
+     * Create a new SortingQuality for an empty grid
+     * @param objectTypes the Object type layer of the World, read when an Object is put or removed
+     * @param size the size of the World
+     */
+    SortingQuality(byte[] objectTypes, int size) {
+        this.objectTypes = objectTypes;
+        this.size = size;
+        int codes = Object.Type.values().length + 1;
+        this.samePairs = new LongAdder[codes];
+        this.neighbours = new LongAdder[codes];
+        for (int i = 0; i < codes; i++) {
+            samePairs[i] = new LongAdder();
+            neighbours[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count an Object put in a cell, called before the Object type layer is updated
+     * @param index the index of the cell
+     * @param code the type code of the Object
+     */
+    void add(int index, byte code) {
+        count(index, code, 1);
+    }
+
+    /**
+     * Count an Object removed from a cell, called before the Object type layer is updated
+     * @param index the index of the cell
+     * @param code the type code of the Object
+     */
+    void remove(int index, byte code) {
+        count(index, code, -1);
+    }
+
+    /**
+     * Add or remove the pairs formed by an Object and its neighbours
+     * @param index the index of the cell of the Object
+     * @param code the type code of the Object
+     * @param sign 1 if the Object is put, -1 if removed
+     */
+    private void count(int index, byte code, int sign) {
+        int x = index % size;
+        int z = index / size;
+        int same = 0;
+        int total = 0;
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = x + dx, nz = z + dz;
+                if ((dx == 0 && dz == 0) || nx < 0 || nz < 0 || nx >= size || nz >= size)
+                    continue;
+                byte neighbour = objectTypes[size * nz + nx];
+                if (neighbour == 0)
+                    continue;
+                total++;
+                if (neighbour == code)
+                    same++;
+                else
+                    neighbours[neighbour].add(sign);
+            }
+        }
+        //A same type neighbour gains a neighbour of its own type
+        neighbours[code].add(sign * (total + same));
+        samePairs[code].add(sign * same);
+    }
+
+    /**
+     * Recount every pair from the Object type layer, used when the layer is filled without putting Objects one by one
+     */
+    void rebuild() {
+        long[] same = new long[samePairs.length];
+        long[] total = new long[neighbours.length];
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                byte code = objectTypes[size * z + x];
+                if (code == 0)
+                    continue;
+                //Only the neighbours after the cell are checked, so every pair is counted once
+                for (int i = 0; i < 4; i++) {
+                    int nx = x + FORWARD_X[i], nz = z + FORWARD_Z[i];
+                    if (nx < 0 || nx >= size || nz >= size)
+                        continue;
+                    byte neighbour = objectTypes[size * nz + nx];
+                    if (neighbour == 0)
+                        continue;
+                    total[code]++;
+                    total[neighbour]++;
+                    if (neighbour == code)
+                        same[code]++;
+                }
+            }
+        }
+        for (int code = 0; code < samePairs.length; code++) {
+            samePairs[code].reset();
+            samePairs[code].add(same[code]);
+            neighbours[code].reset();
+            neighbours[code].add(total[code]);
+        }
+    }
+
+    /**
+     * Return the ratio of same type neighbours over all the Objects
+     * @return the fraction of the neighbours of the Objects that are of the same type, 0 if no Object has a neighbour
+     */
+    public float getRatio() {
+        long same = 0;
+        long total = 0;
+        for (int code = 1; code < samePairs.length; code++) {
+            same += samePairs[code].sum();
+            total += neighbours[code].sum();
+        }
+        return total == 0 ? 0 : 2f * same / total;
+    }
+
+    /**
+     * Return the ratio of same type neighbours for the Objects of a type
+     * @param type the type of Object
+     * @return the fraction of the neighbours of the Objects of this type that are of the same type
+     */
+    public float getRatio(Object.Type type) {
+        int code = type.ordinal() + 1;
+        long total = neighbours[code].sum();
+        return total == 0 ? 0 : 2f * samePairs[code].sum() / total;
+    }
+
+    /**
+     * Return the number of pairs of neighbouring Objects of a type
+     * @param type the type of Object
+     * @return the number of same type pairs
+     */
+    public long getSamePairs(Object.Type type) {
+        return samePairs[type.ordinal() + 1].sum();
+    }
+}
@@ -2,14 +2,84 @@ package simulation.objects;
 
 import engine.rendering.Mesh;
 import org.joml.Vector2i;
-import settings.SettingsInterface;
-
-import java.util.*;
+import settings.SimulationConfig;
 
 public class World extends RenderableWorld {
 
-    public World(int size, Mesh mesh) {
-        super(size, mesh);
+    //Parameters of the Simulation, replaced between two updates only
+    private SimulationConfig config;
+    private WorldTiles tiles;
+    //Recorder of the changes made to the World, null when not recording
+    private volatile ActionLog log;
+
+    //Marker spread of a cell at (i, j) from the source stored at (2 * radius + 1) * (j + radius) + i + radius
+    private float[] markerKernel;
+    private int markerKernelRadius;
+
+    /**
+     * Create a new World
+     * @param size the size of the World
+     * @param mesh the mesh used by the World, null if headless
+     * @param config the parameters of the Simulation
+     */
+    public World(int size, Mesh mesh, SimulationConfig config) {
+        super(size, mesh, config.markerAttenuation());
+        this.config = config;
+        buildMarkerKernel(config.markerRadius());
+    }
+
+    /**
+     * Return the parameters the World and its Agents follow
+     * @return the parameters of the Simulation
+     */
+    public SimulationConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Replace the parameters of the World and of every Agent registered to it, must be called between two updates
+     * the marker attenuation and radius are applied on the next update
+     * @param config the new parameters
+     */
+    public void setConfig(SimulationConfig config) {
+        this.config = config;
+        for (int i = 0; i < agentCount; i++)
+            agentTable[i].setConfig(config);
+    }
+
+    /**
+     * Precompute the marker spread 1 / (dist + 1) over the square of the given radius
+     * @param radius the radius of the markers
+     */
+    private void buildMarkerKernel(int radius) {
+        int width = 2 * radius + 1;
+        float[] kernel = new float[width * width];
+        for (int j = -radius; j <= radius; j++)
+            for (int i = -radius; i <= radius; i++)
+                kernel[width * (j + radius) + i + radius] = 1f / ((float) Math.sqrt(i*i + j*j) + 1);
+        markerKernel = kernel;
+        markerKernelRadius = radius;
+    }
+
+    /**
+     * Return the tiling of the World matching the tile size of the parameters
+     * @return the tiling of the World, null if tiles are disabled
+     */
+    public WorldTiles getTiles() {
+        int tileSize = config.tileSize();
+        if (tileSize <= 0)
+            tiles = null;
+        else if (tiles == null || tiles.getTileSize() != tileSize)
+            tiles = new WorldTiles(this, tileSize);
+        return tiles;
+    }
+
+    /**
+     * Start or stop recording the changes made to the World
+     * @param log the recorder to write the changes to, null to stop recording
+     */
+    public void setActionLog(ActionLog log) {
+        this.log = log;
     }
 
     /**
@@ -19,9 +89,9 @@ public class World extends RenderableWorld {
      * @return the chunk at (X,Z), null if out of range
      */
     public Chunk getChunk(int x, int z) {
-        if (x < 0 || z < 0 || x >= size || z >= size)
+        if (index(x, z) < 0)
             return null;
-        return chunks[size * z + x];
+        return new Chunk(this, x, z);
     }
 
     /**
@@ -31,10 +101,12 @@ public class World extends RenderableWorld {
      * @param distance the distance to move
      */
     public void move(Agent agent, Direction dir, int distance) {
-        int x = (positions.get(agent).getX() + dir.getDisplacement(distance).x);
-        int z = (positions.get(agent).getZ() + dir.getDisplacement(distance).y);
-        put(agent, new Vector2i(x, z));
+        int pos = positions[agent.getId()];
+        put(agent, index(pos % size + dir.getX() * distance, pos / size + dir.getZ() * distance));
         updateVisual(agent);
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.MOVE, 0, agent.getId(), positions[agent.getId()]);
     }
 
     /**
@@ -43,14 +115,22 @@ public class World extends RenderableWorld {
      * @param pos the position to put it to
      */
     public void put(Agent agent, Vector2i pos) {
-        if (canMove(agent, pos)) {
+        put(agent, index(pos.x, pos.y));
+    }
+
+    /**
+     * Put an Agent to a specified cell
+     * @param agent the Agent to put
+     * @param index the index of the cell to put it to, -1 if out of range
+     */
+    private void put(Agent agent, int index) {
+        if (canMove(agent, index)) {
             // If this agent is present in another chunk, remove it
-            if (positions.get(agent) != null)
-                positions.get(agent).setAgent(null);
-            positions.put(agent, getChunk(pos.x, pos.y));
-            getChunk(pos.x, pos.y).setAgent(agent);
-            //Center the agent in the chunk, for rendering
-            agent.setPosition(pos.x+.5f, 1, pos.y+.5f);
+            int id = agent.getId();
+            if (positions[id] >= 0)
+                agents[positions[id]] = -1;
+            positions[id] = index;
+            agents[index] = id;
         }
     }
 
@@ -60,9 +140,18 @@ public class World extends RenderableWorld {
      * @param pos the position to put it to
      */
     public boolean put(Object o, Vector2i pos) {
-        if (!hasObject(pos) && o != null) {
-            getChunk(pos.x, pos.y).setObject(o);
-            o.setPosition(pos.x+.5f, 1, pos.y+.5f);
+        return put(o, index(pos.x, pos.y));
+    }
+
+    /**
+     * Put an Object to a specified cell
+     * @param o the Object to put
+     * @param index the index of the cell to put it to, -1 if out of range
+     * @return has the Object been put
+     */
+    private boolean put(Object o, int index) {
+        if (index >= 0 && objectTypes[index] == 0 && o != null) {
+            setObject(index, o);
             return true;
         }
         return false;
@@ -74,9 +163,12 @@ public class World extends RenderableWorld {
      * @return the removed Object, null otherwise
      */
     public Object removeObject(Vector2i pos) {
-        Object o = pos != null ? getChunk(pos.x, pos.y).getObject() : null;
-        if (pos != null && hasObject(pos))
-            getChunk(pos.x, pos.y).setObject(null);
+        if (pos == null)
+            return null;
+        int index = index(pos.x, pos.y);
+        Object o = objects[index];
+        if (o != null)
+            setObject(index, null);
         return o;
     }
 
@@ -87,8 +179,17 @@ public class World extends RenderableWorld {
      * @return can the Agent move to the specified position
      */
     public boolean canMove(Agent agent, Vector2i pos) {
-        Chunk chunk = getChunk(pos.x, pos.y);
-        return chunk != null && (chunk.getAgent() == null || agent == chunk.getAgent());
+        return canMove(agent, index(pos.x, pos.y));
+    }
+
+    /**
+     * Return whether an Agent can move to a specified cell or not
+     * @param agent the Agent to move
+     * @param index the index of the cell to move to, -1 if out of range
+     * @return can the Agent move to the specified cell
+     */
+    private boolean canMove(Agent agent, int index) {
+        return index >= 0 && (agents[index] < 0 || agents[index] == agent.getId());
     }
 
     /**
@@ -99,9 +200,20 @@ public class World extends RenderableWorld {
      * @return can the Agent move
      */
     public boolean canMove(Agent agent, Direction dir, int distance) {
-        int x = (positions.get(agent).getX() + dir.getDisplacement(distance).x);
-        int z = (positions.get(agent).getZ() + dir.getDisplacement(distance).y);
-        return canMove(agent, new Vector2i(x, z));
+        int pos = positions[agent.getId()];
+        return canMove(agent, index(pos % size + dir.getX() * distance, pos / size + dir.getZ() * distance));
+    }
+
+    /**
+     * Return whether 2 Agents are in adjacent cells or not
+     * @param a the first Agent
+     * @param b the second Agent
+     * @return are the 2 Agents at most 1 cell apart on each axis
+     */
+    public boolean areNeighbours(Agent a, Agent b) {
+        int posA = positions[a.getId()];
+        int posB = positions[b.getId()];
+        return Math.abs(posA % size - posB % size) <= 1 && Math.abs(posA / size - posB / size) <= 1;
     }
 
     /**
@@ -110,17 +222,29 @@ public class World extends RenderableWorld {
      * @return is there an Object at the specified position
      */
     public boolean hasObject(Vector2i pos) {
-        Chunk chunk = getChunk(pos.x, pos.y);
-        return chunk != null && chunk.getObject() != null;
+        int index = index(pos.x, pos.y);
+        return index >= 0 && objectTypes[index] != 0;
+    }
+
+    /**
+     * Return whether there is an Agent at a specified position or nor
+     * @param pos the position to check
+     * @return is there an Agent at the specified position
+     */
+    public boolean hasAgent(Vector2i pos) {
+        int index = index(pos.x, pos.y);
+        return index >= 0 && agents[index] >= 0;
     }
 
     /**
      * Return a local perception from the point of view of an Agent
      * @param source the Agent to percepts from
-     * @return the local perception of the Agent
+     * @param perception the Perception to fill
+     * @return the filled local perception of the Agent
      */
-    public Perception getPerception(Agent source) {
-        return new Perception(positions.get(source).getObject(), positions.get(source).getMarker());
+    public Perception getPerception(Agent source, Perception perception) {
+        int pos = positions[source.getId()];
+        return perception.set(objects[pos], getMarker(pos));
     }
 
     /**
@@ -129,7 +253,15 @@ public class World extends RenderableWorld {
      * @return the picked up Object
      */
     public Object pickUp(Agent agent) {
-        return removeObject(new Vector2i(positions.get(agent).getX(), positions.get(agent).getZ()));
+        int pos = positions[agent.getId()];
+        Object o = objects[pos];
+        if (o != null) {
+            setObject(pos, null);
+            ActionLog log = this.log;
+            if (log != null)
+                log.record(tick, ActionLog.PICK_UP, 0, agent.getId(), pos);
+        }
+        return o;
     }
 
     /**
@@ -139,22 +271,83 @@ public class World extends RenderableWorld {
      * @return has the Object been put down
      */
     public boolean putDown(Agent agent, Object object) {
-        return put(object, new Vector2i(positions.get(agent).getX(), positions.get(agent).getZ()));
+        int pos = positions[agent.getId()];
+        if (!put(object, pos))
+            return false;
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.PUT_DOWN, 0, agent.getId(), pos);
+        return true;
+    }
+
+    /**
+     * Record an Agent starting to help another one
+     * @param master the Agent asking for help
+     * @param slave the Agent helping
+     */
+    void recordHelp(Agent master, Agent slave) {
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.HELP, 0, master.getId(), slave.getId());
     }
 
     /**
-     * Update every Chunks for help markers
+     * Record an Agent releasing the one helping it
+     * @param master the Agent that was helped
+     * @param slave the Agent that was helping
+     */
+    void recordRelease(Agent master, Agent slave) {
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.RELEASE, 0, master.getId(), slave.getId());
+    }
+
+    /**
+     * Advance the World by one update and save the Agents positions for animation
+     * markers aren't touched, their attenuation is computed when they are read
      */
     public void update() {
-        for (Chunk c : chunks) {
-            if (c.getAgent() != null) {
-                lastPosition.put(c.getAgent(), positions.get(c.getAgent()));
-                lastRotation.put(c.getAgent(), rotations.get(c.getAgent()));
-            }
-            c.setMarker(c.getMarker() * SettingsInterface.MARKER_ATTENUATION);
-            if (c.getMarker() < .05)
-                c.setMarker(0);
+        SimulationConfig config = this.config;
+        if (config.markerAttenuation() != getAttenuation()) {
+            changeAttenuation(config.markerAttenuation());
+            ActionLog log = this.log;
+            if (log != null)
+                log.record(tick, ActionLog.ATTENUATION, 0, -1, Float.floatToIntBits(config.markerAttenuation()));
         }
+        //The kernel is only rebuilt here, never while the Agents are stamping markers
+        if (config.markerRadius() != markerKernelRadius)
+            buildMarkerKernel(config.markerRadius());
+        advance();
+    }
+
+    /**
+     * Save the Agents positions for animation, clear a slice of expired markers and start a new update
+     */
+    void advance() {
+        System.arraycopy(positions, 0, lastPositions, 0, agentCount);
+        System.arraycopy(rotations, 0, lastRotations, 0, agentCount);
+        sweepExpiredMarkers();
+        tick++;
+    }
+
+    /**
+     * Change the attenuation of the markers
+     * markers are rewritten with their current value before applying the new attenuation
+     * @param attenuation the new attenuation
+     */
+    void changeAttenuation(float attenuation) {
+        for (int i = 0; i < markers.length; i++)
+            setMarker(i, getMarker(i));
+        setAttenuation(attenuation);
+    }
+
+    /**
+     * Use a marker radius, the kernel is rebuilt if it differs from the current one
+     * @param radius the radius of the markers
+     */
+    void useMarkerRadius(int radius) {
+        if (radius != markerKernelRadius)
+            buildMarkerKernel(radius);
     }
 
     /**
@@ -162,35 +355,43 @@ public class World extends RenderableWorld {
      * @param source the Agent putting down the marker
      */
     public void putMarker(Agent source) {
-        Chunk sourceChunk = positions.get(source);
-        for (int i = -SettingsInterface.MARKER_RADIUS; i <= SettingsInterface.MARKER_RADIUS; i++) {
-            for (int j = -SettingsInterface.MARKER_RADIUS; j <= SettingsInterface.MARKER_RADIUS; j++) {
-                Chunk chunk = getChunk(sourceChunk.getX() + i, sourceChunk.getZ() + j);
-                float dist = i*i + j*j;
-                dist = (float) Math.sqrt(dist) + 1;
-                if (chunk != null) {
-                    chunk.setMarker(Math.max(1f / dist, chunk.getMarker()));
-                }
-            }
-        }
+        int pos = positions[source.getId()];
+        spreadMarker(pos, true);
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.PUT_MARKER, markerKernelRadius, source.getId(), pos);
     }
 
     /**
-     * Spawn a help marker to the world and spreads it out
-     * @param source the Agent putting down the marker
+     * Remove the help marker of an Agent from the world
+     * @param source the Agent removing its marker
      */
     public void removeMarker(Agent source) {
-        Chunk sourceChunk = positions.get(source);
-        for (int i = -SettingsInterface.MARKER_RADIUS; i <= SettingsInterface.MARKER_RADIUS; i++) {
-            for (int j = -SettingsInterface.MARKER_RADIUS; j <= SettingsInterface.MARKER_RADIUS; j++) {
-                Chunk chunk = getChunk(sourceChunk.getX() + i, sourceChunk.getZ() + j);
-                float dist = i*i + j*j;
-                dist = (float) Math.sqrt(dist) + 1;
-                if (chunk != null) {
-                    chunk.setMarker(Math.max(chunk.getMarker() - 1f / dist, 0));
-                }
-            }
-        }
+        int pos = positions[source.getId()];
+        spreadMarker(pos, false);
+        ActionLog log = this.log;
+        if (log != null)
+            log.record(tick, ActionLog.REMOVE_MARKER, markerKernelRadius, source.getId(), pos);
+    }
+
+    /**
+     * Add or remove a help marker spread around a cell
+     * @param pos the index of the cell the marker is centered on
+     * @param add true to add the marker, false to remove it
+     */
+    void spreadMarker(int pos, boolean add) {
+        int sourceX = pos % size;
+        int sourceZ = pos / size;
+        int radius = markerKernelRadius;
+        int width = 2 * radius + 1;
+        //The kernel is clipped to the World, then applied one contiguous row at a time
+        int fromX = Math.max(sourceX - radius, 0);
+        int length = Math.min(sourceX + radius, size - 1) - fromX + 1;
+        int fromZ = Math.max(sourceZ - radius, 0);
+        int toZ = Math.min(sourceZ + radius, size - 1);
+        markDirty(fromX, fromZ, fromX + length - 1, toZ);
+        for (int z = fromZ; z <= toZ; z++)
+            stampMarkers(z * size + fromX, markerKernel, width * (z - sourceZ + radius) + fromX - sourceX + radius, length, add);
     }
 
 
@@ -200,12 +401,14 @@ public class World extends RenderableWorld {
      * @return an Agent asking for help and adjacent to the source Agent, null otherwise
      */
     public Agent lookForAgentInNeed(Agent source) {
-        Chunk sourceChunk = positions.get(source);
+        int pos = positions[source.getId()];
+        int sourceX = pos % size;
+        int sourceZ = pos / size;
         for (int i = -1; i <= 1; i++) {
             for (int j = -1; j <= 1; j++) {
-                Chunk chunk = getChunk(sourceChunk.getX() + i, sourceChunk.getZ() + j);
-                if (chunk != null) {
-                    Agent agent = chunk.getAgent();
+                int index = index(sourceX + i, sourceZ + j);
+                if (index >= 0) {
+                    Agent agent = agentAt(index);
                     if (agent != null && agent != source && agent.isAskingForHelp())
                         return agent;
                 }
@@ -215,24 +418,52 @@ public class World extends RenderableWorld {
     }
 
     /**
-     * Return a Map of the help markers value in the local surrounding of the agent
-     * the map is Ordered from most to least markers, indexed by Direction
+     * Fill the Directions surrounding the agent, ordered from most to least help markers
+     * Directions with the same marker value are only listed once, the last one to be scanned is kept
      * @param source the Agent doing the perception
-     * @return the ordered Map of Direction and help markers
+     * @param directions the array to fill with the ordered Directions, must hold at least 8 elements
+     * @param values an array used to hold the marker values of the Directions, must hold at least 8 elements
+     * @return the number of Directions filled
      */
-    public Map<Float, Direction> getMarkers(Agent source) {
-        Map<Float, Direction> markers = new TreeMap<>(Comparator.reverseOrder());
-        if (SettingsInterface.ENABLE_MARKER) {
-            Chunk sourceChunk = positions.get(source);
-            for (Direction dir : Direction.values()) {
+    public int getMarkers(Agent source, Direction[] directions, float[] values) {
+        int count = 0;
+        if (config.enableMarker()) {
+            int pos = positions[source.getId()];
+            int sourceX = pos % size;
+            int sourceZ = pos / size;
+            for (Direction dir : Direction.VALUES) {
                 if (dir == Direction.NONE)
                     continue;
-                Vector2i displacement = dir.getDisplacement(1);
-                Chunk chunk = getChunk(sourceChunk.getX() + displacement.x, sourceChunk.getZ() + displacement.y);
-                if (chunk != null)
-                    markers.put(chunk.getMarker(), dir);
+                int index = index(sourceX + dir.getX(), sourceZ + dir.getZ());
+                if (index >= 0)
+                    count = insertMarker(directions, values, count, dir, getMarker(index));
             }
         }
-        return markers;
+        return count;
+    }
+
+    /**
+     * Insert a Direction in a list ordered by marker value, most first
+     * if the value is already present, its Direction is replaced
+     * @param directions the ordered Directions
+     * @param values the marker values of the ordered Directions
+     * @param count the number of Directions currently in the list
+     * @param dir the Direction to insert
+     * @param value the marker value of the Direction
+     * @return the new number of Directions in the list
+     */
+    private static int insertMarker(Direction[] directions, float[] values, int count, Direction dir, float value) {
+        int i = 0;
+        while (i < count && values[i] > value)
+            i++;
+        if (i < count && values[i] == value) {
+            directions[i] = dir;
+            return count;
+        }
+        System.arraycopy(directions, i, directions, i + 1, count - i);
+        System.arraycopy(values, i, values, i + 1, count - i);
+        directions[i] = dir;
+        values[i] = value;
+        return count + 1;
     }
 }
@@ -0,0 +1,203 @@
+package simulation.objects;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * This class represent a binary snapshot of a World and its Agents, saved to and loaded from a memory-mapped file
+ * layout (little endian) : header, Object type of every cell, live markers, then Agents in id order
+ * header : magic, version, size, update number, marker attenuation, seed, marker count, Agent count
+ * marker : cell index, value when written, updates since written
+ * Agent : cell index, rotation, carried Object type code, then the Agent's own state (see Agent.writeState)
+ * the random streams of the Agents can't be saved, only the seed of the saved scene is kept for reference,
+ * so a loaded scene is identical to the saved one but its following updates don't continue the original run
+ */
+public class WorldFile {
+
+    private static final int MAGIC = 0x534D4157;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES + Float.BYTES + Long.BYTES;
+    private static final int MARKER_SIZE = 2 * Integer.BYTES + Float.BYTES;
+    private static final int AGENT_SIZE = Integer.BYTES + Float.BYTES + 1;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int tick;
+    private final float attenuation;
+    private final long seed;
+    private final int markerCount;
+    private final int agentCount;
+
+    /**
+     * Create a new WorldFile from a mapped file, and read its header
+     * @param buffer the mapped file
+     * @throws IOException thrown when the file isn't a World snapshot of a supported version
+     */
+    private WorldFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("Not a World snapshot");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported World snapshot version " + version);
+        size = buffer.getInt();
+        tick = buffer.getInt();
+        attenuation = buffer.getFloat();
+        seed = buffer.getLong();
+        markerCount = buffer.getInt();
+        agentCount = buffer.getInt();
+    }
+
+    /**
+     * Map a World snapshot file and read its header, the World is only read by load()
+     * @param path the path of the file
+     * @return the opened snapshot
+     * @throws IOException thrown when the file can't be read or isn't a World snapshot
+     */
+    public static WorldFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //The mapping stays valid once the channel is closed
+            return new WorldFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Save a World and its Agents to a file, replacing it if it exists
+     * must be called between two updates
+     * @param path the path of the file
+     * @param world the World to save
+     * @param agents the Agents of the World, ordered by id
+     * @param seed the seed the random streams of the Agents were split from, kept for reference
+     * @throws IOException thrown when the file can't be written
+     */
+    public static void save(Path path, World world, List<Agent> agents, long seed) throws IOException {
+        int cells = world.size * world.size;
+        int markerCount = 0;
+        for (int i = 0; i < cells; i++)
+            if (world.markers[i] != 0 && world.getMarker(i) != 0)
+                markerCount++;
+        long length = HEADER_SIZE + cells + (long) markerCount * MARKER_SIZE;
+        for (Agent agent : agents)
+            length += AGENT_SIZE + agent.getStateSize();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(world.size);
+            buffer.putInt(world.tick);
+            buffer.putFloat(world.getAttenuation());
+            buffer.putLong(seed);
+            buffer.putInt(markerCount);
+            buffer.putInt(agents.size());
+            buffer.put(world.objectTypes, 0, cells);
+            //Markers are saved as written with their age, so they keep attenuating exactly as before the save
+            for (int i = 0; i < cells; i++) {
+                if (world.markers[i] != 0 && world.getMarker(i) != 0) {
+                    buffer.putInt(i);
+                    buffer.putFloat(world.markers[i]);
+                    buffer.putInt(world.tick - world.markerTicks[i]);
+                }
+            }
+            for (Agent agent : agents) {
+                int id = agent.getId();
+                buffer.putInt(world.positions[id]);
+                buffer.putFloat(world.rotations[id]);
+                buffer.put(RenderableWorld.typeCode(agent.getCarriedObject()));
+                agent.writeState(buffer);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Restore the saved World into an empty World of the same size
+     * the Agents and Objects are created by the factories, the Agents in id order
+     * @param world the empty World to fill
+     * @param agentFactory creates a new Agent registered to the World
+     * @param objectFactory creates a new Object of a type
+     * @throws IOException thrown when the World doesn't match the snapshot or the file is truncated
+     */
+    public void load(World world, Supplier<Agent> agentFactory, Function<Object.Type, Object> objectFactory) throws IOException {
+        if (world.size != size || world.agentCount != 0 || world.objectCount != 0)
+            throw new IOException("The World doesn't match the snapshot");
+        try {
+            buffer.position(HEADER_SIZE);
+            Object.Type[] types = Object.Type.values();
+            int cells = size * size;
+            //The type layer is copied at once, the sorting quality is then recounted in a single pass
+            buffer.get(world.objectTypes, 0, cells);
+            for (int i = 0; i < cells; i++) {
+                byte code = world.objectTypes[i];
+                if (code != 0) {
+                    Object object = objectFactory.apply(types[code - 1]);
+                    object.setPosition(i % size + .5f, 1, i / size + .5f);
+                    world.register(object);
+                    world.objectCells[object.getId()] = i;
+                    world.objects[i] = object;
+                }
+            }
+            world.sortingQuality.rebuild();
+
+            world.tick = tick;
+            world.setAttenuation(attenuation);
+            for (int i = 0; i < markerCount; i++) {
+                int index = buffer.getInt();
+                world.markers[index] = buffer.getFloat();
+                world.markerTicks[index] = tick - buffer.getInt();
+            }
+            world.markDirty(0, 0, size - 1, size - 1);
+
+            //Every Agent is created before any is restored, so master and slave links can be resolved
+            for (int i = 0; i < agentCount; i++)
+                agentFactory.get();
+            for (int id = 0; id < agentCount; id++) {
+                Agent agent = world.agentTable[id];
+                int index = buffer.getInt();
+                float rotation = buffer.getFloat();
+                byte carried = buffer.get();
+                Object object = null;
+                if (carried != 0) {
+                    object = objectFactory.apply(types[carried - 1]);
+                    world.register(object);
+                }
+                agent.readState(buffer, object, world.agentTable);
+                agent.setPosition(index % size + .5f, 1, index / size + .5f);
+                world.positions[id] = index;
+                world.lastPositions[id] = index;
+                world.rotations[id] = rotation;
+                world.lastRotations[id] = rotation;
+                world.agents[index] = id;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted World snapshot", e);
+        }
+    }
+
+    /**
+     * Return the size of the saved World
+     * @return the size of the World
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Return the seed the random streams of the saved Agents were split from
+     * a loaded scene doesn't reuse it, the state of the streams at the time of the save is lost
+     * @return the seed of the saved scene
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
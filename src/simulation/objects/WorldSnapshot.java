@@ -0,0 +1,65 @@
+package simulation.objects;
+
+/**
+ * This class represent a copy of the state of a World after an update, as seen by the renderer
+ * the World fills it on the simulation thread, then hands it over to the render thread
+ */
+class WorldSnapshot {
+
+    //Update number of the copy and time at which it was taken (System.nanoTime)
+    int tick;
+    long time;
+
+    //Agent state tables, indexed by Agent id, and id of the Object carried by each Agent (-1 if none)
+    int agentCount;
+    int[] positions;
+    int[] lastPositions;
+    float[] rotations;
+    float[] lastRotations;
+    int[] carried;
+
+    //Cell of every Object, indexed by Object id (-1 if carried)
+    int objectCount;
+    Object[] objectTable;
+    int[] objectCells;
+
+    //Markers as stored by the World, with the attenuation to apply when read
+    float[] markers;
+    int[] markerTicks;
+    float attenuation;
+    float[] attenuationPowers;
+
+    //Region of the markers written since the previous snapshot was taken, {minX, minZ, maxX, maxZ}
+    final int[] dirtyMarkers;
+    //Region of the markers written since this copy was last filled, only used by the simulation thread
+    final int[] staleMarkers;
+
+    /**
+     * Create a new empty snapshot
+     * @param size the size of the World
+     */
+    WorldSnapshot(int size) {
+        positions = new int[0];
+        lastPositions = new int[0];
+        rotations = new float[0];
+        lastRotations = new float[0];
+        carried = new int[0];
+        objectTable = new Object[0];
+        objectCells = new int[0];
+        markers = new float[size * size];
+        markerTicks = new int[size * size];
+        attenuationPowers = new float[] {1};
+        dirtyMarkers = new int[] {size, size, -1, -1};
+        staleMarkers = new int[] {0, 0, size - 1, size - 1};
+        tick = -1;
+    }
+
+    /**
+     * Return the marker value of a cell at the time of the snapshot
+     * @param index the index of the cell
+     * @return the marker value
+     */
+    float getMarker(int index) {
+        return RenderableWorld.attenuate(markers[index], tick - markerTicks[index], attenuation, attenuationPowers);
+    }
+}
@@ -0,0 +1,179 @@
+package simulation.objects;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * This class splits a World's grid into square tiles processed concurrently on the fork-join pool
+ * Every Agent is owned by the tile it stands on, an Agent whose plan only touches cells of its own tile
+ * is committed by the tile's worker, the others (near a tile border) are committed afterwards, one at a time
+ */
+public class WorldTiles {
+
+    private final World world;
+    private final int tileSize;
+    private final int tilesPerRow;
+    private final int tileCount;
+
+    //Agents sorted by tile (counting sort, so ids stay in ascending order inside a tile)
+    private final int[] tileStart;
+    private int[] tileOf;
+    private int[] sortedAgents;
+    private boolean[] border;
+
+    /**
+     * Create a new tiling of a World
+     * @param world the World to split
+     * @param tileSize the size of a tile in cells
+     */
+    public WorldTiles(World world, int tileSize) {
+        this.world = world;
+        this.tileSize = tileSize;
+        this.tilesPerRow = (world.getSize() + tileSize - 1) / tileSize;
+        this.tileCount = tilesPerRow * tilesPerRow;
+        this.tileStart = new int[tileCount + 1];
+        this.tileOf = new int[0];
+        this.sortedAgents = new int[0];
+        this.border = new boolean[0];
+    }
+
+    /**
+     * Return the size of a tile in cells
+     * @return the tile size
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Update all the Agents, deciding and committing tile by tile
+     * @param agents the Agents of the World, ordered by id
+     * @param elapsedTime time elapsed since last update in seconds
+     */
+    public void update(List<Agent> agents, double elapsedTime) {
+        sortAgents(agents);
+
+        //Every Agent decides against the unchanged World
+        forEachTile(tile -> {
+            for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++)
+                world.agentTable[sortedAgents[i]].decide();
+        });
+
+        //Agents whose plan stays inside their tile are committed by the tile's worker
+        forEachTile(tile -> {
+            for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++) {
+                int id = sortedAgents[i];
+                border[id] = !isInside(tile, id);
+                if (!border[id])
+                    world.agentTable[id].commit(elapsedTime);
+            }
+        });
+
+        //Agents near a border are committed afterwards, in id order
+        for (Agent agent : agents)
+            if (border[agent.getId()])
+                agent.commit(elapsedTime);
+    }
+
+    /**
+     * Sort the Agents by the tile they stand on
+     * @param agents the Agents of the World, ordered by id
+     */
+    private void sortAgents(List<Agent> agents) {
+        int count = world.agentCount;
+        if (sortedAgents.length < count) {
+            tileOf = new int[count];
+            sortedAgents = new int[count];
+            border = new boolean[count];
+        }
+        Arrays.fill(tileStart, 0);
+        for (Agent agent : agents) {
+            int id = agent.getId();
+            tileOf[id] = tileOf(world.positions[id]);
+            tileStart[tileOf[id] + 1]++;
+        }
+        for (int tile = 0; tile < tileCount; tile++)
+            tileStart[tile + 1] += tileStart[tile];
+        int[] next = Arrays.copyOf(tileStart, tileCount);
+        for (Agent agent : agents) {
+            int id = agent.getId();
+            sortedAgents[next[tileOf[id]]++] = id;
+        }
+    }
+
+    /**
+     * Return the tile containing a cell
+     * @param index the index of the cell
+     * @return the index of the tile
+     */
+    private int tileOf(int index) {
+        int size = world.getSize();
+        return (index / size / tileSize) * tilesPerRow + (index % size / tileSize);
+    }
+
+    /**
+     * Return whether every cell touched by an Agent's plan is inside a tile or not
+     * @param tile the tile to check
+     * @param id the id of the Agent
+     * @return is the plan's footprint inside the tile
+     */
+    private boolean isInside(int tile, int id) {
+        int size = world.getSize();
+        int reach = world.agentTable[id].getPlanReach();
+        int pos = world.positions[id];
+        int minX = (tile % tilesPerRow) * tileSize;
+        int minZ = (tile / tilesPerRow) * tileSize;
+        int x = pos % size;
+        int z = pos / size;
+        return x - reach >= minX && z - reach >= minZ && x + reach < minX + tileSize && z + reach < minZ + tileSize;
+    }
+
+    /**
+     * Run an action for every tile on the fork-join pool
+     * @param action the action to run, taking the index of the tile
+     */
+    private void forEachTile(IntConsumer action) {
+        ForkJoinPool.commonPool().invoke(new TileTask(action, 0, tileCount));
+    }
+
+    /**
+     * This class represent a range of tiles processed by the fork-join pool, split until a single tile is left
+     */
+    private static class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        /**
+         * Create a new task
+         * @param action the action to run on each tile
+         * @param from the first tile of the range (inclusive)
+         * @param to the last tile of the range (exclusive)
+         */
+        TileTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Process the range, or split it in 2 subtasks
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int tile = from; tile < to; tile++)
+                    action.accept(tile);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(action, from, middle), new TileTask(action, middle, to));
+            }
+        }
+    }
+}